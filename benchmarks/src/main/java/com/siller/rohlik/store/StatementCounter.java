@@ -0,0 +1,81 @@
+package com.siller.rohlik.store;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts statement executions (database round trips) of the application data source. A JDBC batch counts once.
+ */
+public class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTIONS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"
+    );
+
+    private final AtomicLong executions = new AtomicLong();
+
+    public long executions() {
+        return executions.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return method.getName().equals("getConnection") ? proxy(Connection.class, result, this::onConnection) : result;
+            });
+        }
+        return bean;
+    }
+
+    private Object onConnection(Object connection, Method method, Object[] args) throws Throwable {
+        Object result = invoke(connection, method, args);
+        if (result instanceof CallableStatement) {
+            return proxy(CallableStatement.class, result, this::onStatement);
+        }
+        if (result instanceof PreparedStatement) {
+            return proxy(PreparedStatement.class, result, this::onStatement);
+        }
+        if (result instanceof Statement) {
+            return proxy(Statement.class, result, this::onStatement);
+        }
+        return result;
+    }
+
+    private Object onStatement(Object statement, Method method, Object[] args) throws Throwable {
+        if (EXECUTIONS.contains(method.getName())) {
+            executions.incrementAndGet();
+        }
+        return invoke(statement, method, args);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, TargetInvocationHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    @FunctionalInterface
+    private interface TargetInvocationHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,94 @@
+package com.siller.rohlik.store;
+
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public final class StoreBenchmarkContext {
+
+    private static final int SAVE_CHUNK_SIZE = 1000;
+
+    private StoreBenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, null, properties);
+    }
+
+    public static ConfigurableApplicationContext start(StatementCounter statementCounter, String... properties) {
+        return start(WebApplicationType.NONE, statementCounter, properties);
+    }
+
+    public static ConfigurableApplicationContext startWebServer(String... properties) {
+        return start(WebApplicationType.SERVLET, null, concat(properties, "server.port=0"));
+    }
+
+    private static ConfigurableApplicationContext start(
+            WebApplicationType webApplicationType, StatementCounter statementCounter, String... properties) {
+        return new SpringApplicationBuilder(StoreApplication.class)
+                .web(webApplicationType)
+                .initializers(context -> {
+                    if (statementCounter != null) {
+                        context.getBeanFactory().addBeanPostProcessor(statementCounter);
+                    }
+                })
+                .run(commandLineArguments(concat(
+                        properties,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "inactiveOrdersProcessor.cronExpression=-",
+                        "logging.level.root=WARN"
+                )));
+    }
+
+    private static String[] concat(String[] properties, String... moreProperties) {
+        String[] result = Arrays.copyOf(properties, properties.length + moreProperties.length);
+        System.arraycopy(moreProperties, 0, result, properties.length, moreProperties.length);
+        return result;
+    }
+
+    // Command line arguments take precedence over application.properties, unlike SpringApplicationBuilder.properties.
+    private static String[] commandLineArguments(String[] properties) {
+        return Arrays.stream(properties)
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+    }
+
+    public static List<String> createProducts(ProductRepository productRepository, int count) {
+        List<String> productIds = new ArrayList<>(count);
+        List<Product> chunk = new ArrayList<>(SAVE_CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("product-" + i);
+            product.setPrice(new BigDecimal("10.50"));
+            product.setQuantity(Integer.MAX_VALUE / 2);
+            chunk.add(product);
+            if (chunk.size() == SAVE_CHUNK_SIZE || i == count - 1) {
+                productRepository.saveAll(chunk).forEach(saved -> productIds.add(saved.getId()));
+                chunk.clear();
+            }
+        }
+        return productIds;
+    }
+
+    public static OrderDto randomOrder(List<String> productIds, int basketSize, Random random) {
+        List<String> shuffled = new ArrayList<>(productIds);
+        Collections.shuffle(shuffled, random);
+        OrderDto orderDto = new OrderDto();
+        for (String productId : shuffled.subList(0, basketSize)) {
+            orderDto.addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1 + random.nextInt(3)));
+        }
+        return orderDto;
+    }
+}
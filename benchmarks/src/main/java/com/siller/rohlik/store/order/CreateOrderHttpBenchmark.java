@@ -0,0 +1,95 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class CreateOrderHttpBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+    private static final int BASKET_SIZE = 5;
+    private static final int PREPARED_ORDERS = 1024;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"20"})
+    private int connectionPoolSize;
+
+    @Param({"false", "true"})
+    private boolean orderGroupCommit;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI ordersUri;
+    private String[] orders;
+    private final AtomicInteger nextOrder = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = StoreBenchmarkContext.startWebServer(
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "spring.datasource.hikari.maximum-pool-size=" + connectionPoolSize,
+                "orderGroupCommit.enabled=" + orderGroupCommit
+        );
+        if (runsRequestsOnVirtualThreads(context) != virtualThreads) {
+            throw new IllegalStateException("The server does not handle requests on virtual threads " + virtualThreads);
+        }
+        ordersUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/orders");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), PRODUCT_COUNT);
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        Random random = new Random(42);
+        orders = new String[PREPARED_ORDERS];
+        for (int i = 0; i < PREPARED_ORDERS; i++) {
+            orders[i] = objectMapper.writeValueAsString(StoreBenchmarkContext.randomOrder(productIds, BASKET_SIZE, random));
+        }
+    }
+
+    // Runs a task on the executor of the Tomcat connector, so the check sees the threads requests are handled on.
+    private static boolean runsRequestsOnVirtualThreads(ConfigurableApplicationContext context) throws Exception {
+        TomcatWebServer webServer = (TomcatWebServer) ((WebServerApplicationContext) context).getWebServer();
+        Executor executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(10, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int createOrder() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(ordersUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(orders[nextOrder.getAndIncrement() & (PREPARED_ORDERS - 1)]))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,61 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many concurrent single line orders of a few hot products, which serialize on the product rows when stock is
+ * reserved in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class FlashSaleBenchmark {
+
+    private static final int HOT_PRODUCTS = 4;
+
+    @Param({"database", "ledger", "holds"})
+    private String stockReservationsMode;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderDto[] orders;
+    private final AtomicInteger nextOrder = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start(
+                "stockReservations.mode=" + stockReservationsMode,
+                "spring.datasource.hikari.maximum-pool-size=32"
+        );
+        orderService = context.getBean(OrderService.class);
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), HOT_PRODUCTS);
+        orders = new OrderDto[HOT_PRODUCTS];
+        for (int i = 0; i < HOT_PRODUCTS; i++) {
+            orders[i] = new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productIds.get(i)).quantity(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(orders[nextOrder.getAndIncrement() % HOT_PRODUCTS]);
+    }
+}
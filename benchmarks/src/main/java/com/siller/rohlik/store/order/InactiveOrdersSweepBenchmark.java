@@ -0,0 +1,78 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InactiveOrdersSweepBenchmark {
+
+    private static final int PRODUCT_COUNT = 100;
+    private static final int INSERT_CHUNK_SIZE = 10_000;
+    private static final BigDecimal PRICE = new BigDecimal("10.50");
+
+    @Param({"10000", "100000", "1000000"})
+    private int expiredOrders;
+
+    private ConfigurableApplicationContext context;
+    private InactiveOrdersProcessor inactiveOrdersProcessor;
+    private JdbcTemplate jdbcTemplate;
+    private List<String> productIds;
+    private long nextRowId = 1_000_000_000L;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start();
+        inactiveOrdersProcessor = context.getBean(InactiveOrdersProcessor.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), PRODUCT_COUNT);
+    }
+
+    @Setup(Level.Iteration)
+    public void insertExpiredOrders() {
+        Timestamp createdAt = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        List<Object[]> orders = new ArrayList<>(INSERT_CHUNK_SIZE);
+        List<Object[]> items = new ArrayList<>(INSERT_CHUNK_SIZE);
+        List<Object[]> metadata = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (int i = 0; i < expiredOrders; i++) {
+            String orderId = UUID.randomUUID().toString();
+            long rowId = nextRowId++;
+            orders.add(new Object[]{orderId, Order.State.ACTIVE.ordinal(), PRICE});
+            items.add(new Object[]{rowId, orderId, productIds.get(i % PRODUCT_COUNT), PRICE});
+            metadata.add(new Object[]{rowId, orderId, createdAt});
+            if (orders.size() == INSERT_CHUNK_SIZE || i == expiredOrders - 1) {
+                jdbcTemplate.batchUpdate("insert into store_order (id, state, total_price, version) values (?, ?, ?, 0)", orders);
+                jdbcTemplate.batchUpdate("insert into order_item (id, order_id, product_id, quantity, unit_price) values (?, ?, ?, 1, ?)", items);
+                jdbcTemplate.batchUpdate("insert into active_order_metadata (id, order_id, created_at) values (?, ?, ?)", metadata);
+                orders.clear();
+                items.clear();
+                metadata.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void sweepExpiredOrders() throws InterruptedException {
+        inactiveOrdersProcessor.scheduleTaskUsingCronExpression();
+    }
+}
@@ -0,0 +1,101 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.CatalogProduct;
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of orders and creation of their items without the database. Run it with {@code -prof gc} to see the
+ * bytes allocated per order next to its latency; {@code createRejectedOrder} covers baskets with an unknown product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCreatorBenchmark {
+
+    private static final int PREPARED_ORDERS = 1024;
+
+    @Param({"1000", "100000"})
+    private int productCount;
+
+    @Param({"1", "10", "60"})
+    private int basketSize;
+
+    private Map<String, CatalogProduct> catalog;
+    private OrderDto[] orders;
+    private OrderDto[] rejectedOrders;
+    private int nextOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new HashMap<>();
+        for (int i = 0; i < productCount; i++) {
+            catalog.put("product-" + i, new CatalogProduct("product-" + i, "product-" + i, new BigDecimal("10.50"), true));
+        }
+        List<String> productIds = new ArrayList<>(catalog.keySet());
+        Random random = new Random(42);
+        orders = new OrderDto[PREPARED_ORDERS];
+        for (int i = 0; i < PREPARED_ORDERS; i++) {
+            orders[i] = StoreBenchmarkContext.randomOrder(productIds, basketSize, random);
+        }
+        rejectedOrders = new OrderDto[PREPARED_ORDERS];
+        for (int i = 0; i < PREPARED_ORDERS; i++) {
+            rejectedOrders[i] = StoreBenchmarkContext.randomOrder(productIds, basketSize, random)
+                    .addOrderItemsItem(new OrderItemDto().productId("unknown-product").quantity(1));
+        }
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        OrderDto orderDto = orders[nextOrder++ & (PREPARED_ORDERS - 1)];
+        return new OrderCreator(orderDto, this::loadProducts, this::loadStock, OrderCreatorBenchmark::productReference).getOrder();
+    }
+
+    @Benchmark
+    public List<CreateNewOrderError> createRejectedOrder() {
+        OrderDto orderDto = rejectedOrders[nextOrder++ & (PREPARED_ORDERS - 1)];
+        return new OrderCreator(orderDto, this::loadProducts, this::loadStock, OrderCreatorBenchmark::productReference).getErrors();
+    }
+
+    private Map<String, CatalogProduct> loadProducts(Collection<String> productIds) {
+        Map<String, CatalogProduct> products = new HashMap<>();
+        for (String productId : productIds) {
+            CatalogProduct product = catalog.get(productId);
+            if (product != null) {
+                products.put(productId, product);
+            }
+        }
+        return products;
+    }
+
+    private Map<String, Integer> loadStock(Collection<String> productIds) {
+        Map<String, Integer> stock = new HashMap<>();
+        for (String productId : productIds) {
+            stock.put(productId, Integer.MAX_VALUE);
+        }
+        return stock;
+    }
+
+    private static Product productReference(String productId) {
+        Product product = new Product();
+        product.setId(productId);
+        return product;
+    }
+}
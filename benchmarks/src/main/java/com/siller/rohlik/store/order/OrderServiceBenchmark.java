@@ -0,0 +1,56 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final int PREPARED_ORDERS = 1024;
+
+    @Param({"100", "10000"})
+    private int productCount;
+
+    @Param({"1", "10", "60"})
+    private int basketSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderDto[] orders;
+    private int nextOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start();
+        orderService = context.getBean(OrderService.class);
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), productCount);
+        Random random = new Random(42);
+        orders = new OrderDto[PREPARED_ORDERS];
+        for (int i = 0; i < PREPARED_ORDERS; i++) {
+            orders[i] = StoreBenchmarkContext.randomOrder(productIds, basketSize, random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(orders[nextOrder++ & (PREPARED_ORDERS - 1)]);
+    }
+}
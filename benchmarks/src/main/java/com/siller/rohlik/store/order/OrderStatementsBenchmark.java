@@ -0,0 +1,93 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.StatementCounter;
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports database round trips next to the latency of order creation, with Hibernate statement batching switched
+ * off (as before it was configured) and on. JMH sums the {@code statements} and {@code orders} counters over the
+ * measurement iterations, their ratio is the number of statements per order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderStatementsBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+    private static final int PREPARED_ORDERS = 1024;
+
+    @Param({"false", "true"})
+    private boolean batching;
+
+    @Param({"1", "10", "60"})
+    private int basketSize;
+
+    private final StatementCounter statementCounter = new StatementCounter();
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderDto[] orders;
+    private int nextOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start(
+                statementCounter,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + (batching ? 50 : 0),
+                "spring.jpa.properties.hibernate.order_inserts=" + batching,
+                "spring.jpa.properties.hibernate.order_updates=" + batching
+        );
+        orderService = context.getBean(OrderService.class);
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), PRODUCT_COUNT);
+        Random random = new Random(42);
+        orders = new OrderDto[PREPARED_ORDERS];
+        for (int i = 0; i < PREPARED_ORDERS; i++) {
+            orders[i] = StoreBenchmarkContext.randomOrder(productIds, basketSize, random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public long statements;
+        public long orders;
+
+        private long executionsAtStart;
+
+        @Setup(Level.Iteration)
+        public void reset(OrderStatementsBenchmark benchmark) {
+            executionsAtStart = benchmark.statementCounter.executions();
+            statements = 0;
+            orders = 0;
+        }
+
+        void orderCreated(OrderStatementsBenchmark benchmark) {
+            statements = benchmark.statementCounter.executions() - executionsAtStart;
+            orders++;
+        }
+    }
+
+    @Benchmark
+    public Order createOrder(Statements statements) {
+        Order order = orderService.createOrder(orders[nextOrder++ & (PREPARED_ORDERS - 1)]);
+        statements.orderCreated(this);
+        return order;
+    }
+}
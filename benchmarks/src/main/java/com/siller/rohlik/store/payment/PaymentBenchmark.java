@@ -0,0 +1,71 @@
+package com.siller.rohlik.store.payment;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.OrderController;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.PaymentDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+
+    @Param({"1", "10", "60"})
+    private int basketSize;
+
+    @Param({"false", "true"})
+    private boolean idempotencyKey;
+
+    private ConfigurableApplicationContext context;
+    private OrderController orderController;
+    private OrderRepository orderRepository;
+    private PaymentController paymentController;
+    private List<String> productIds;
+    private final Random random = new Random(42);
+
+    private String orderId;
+    private PaymentDto paymentDto;
+    private String paymentIdempotencyKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start();
+        orderController = context.getBean(OrderController.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        paymentController = context.getBean(PaymentController.class);
+        productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), PRODUCT_COUNT);
+    }
+
+    @Setup(Level.Invocation)
+    public void createUnpaidOrder() {
+        orderId = orderController.createNewOrder(StoreBenchmarkContext.randomOrder(productIds, basketSize, random), null)
+                .getBody()
+                .getId();
+        paymentDto = new PaymentDto().amount(orderRepository.findById(orderId).orElseThrow().getTotalPrice());
+        paymentIdempotencyKey = idempotencyKey ? UUID.randomUUID().toString() : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> createPayment() {
+        return paymentController.createPayment(orderId, paymentDto, paymentIdempotencyKey);
+    }
+}
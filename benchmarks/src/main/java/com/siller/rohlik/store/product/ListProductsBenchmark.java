@@ -0,0 +1,62 @@
+package com.siller.rohlik.store.product;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.product.model.ProductListing;
+import com.siller.rohlik.store.product.model.ProductSearch;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists a page of products starting at the given fraction of a 100k product catalog. With keyset pagination the
+ * time per unfiltered page should not depend on {@code depth}. The {@code namePrefix} filter matches about 11% of
+ * the products, spread over all IDs, and shows what a filtered deep page costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListProductsBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int PAGE_SIZE = 50;
+    private static final ProductSearch NO_FILTER = new ProductSearch(null, null, null, null);
+    private static final ProductSearch NAME_PREFIX_FILTER = new ProductSearch(null, null, null, "product-1");
+
+    @Param({"0", "0.5", "0.99"})
+    private double depth;
+
+    @Param({"none", "namePrefix"})
+    private String filter;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private String afterId;
+    private ProductSearch search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), CATALOG_SIZE)
+                .stream().sorted().toList();
+        int position = (int) (depth * CATALOG_SIZE);
+        afterId = position == 0 ? null : productIds.get(position - 1);
+        search = "namePrefix".equals(filter) ? NAME_PREFIX_FILTER : NO_FILTER;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductListing> listPage() {
+        return productService.findProducts(afterId, search, PAGE_SIZE + 1);
+    }
+}
@@ -0,0 +1,54 @@
+package com.siller.rohlik.store.product;
+
+import com.siller.rohlik.store.StoreBenchmarkContext;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderItem;
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReturnProductsBenchmark {
+
+    @Param({"1", "10", "60"})
+    private int basketSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreBenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+        List<String> productIds = StoreBenchmarkContext.createProducts(context.getBean(ProductRepository.class), basketSize);
+        order = new Order();
+        for (String productId : productIds) {
+            Product product = new Product();
+            product.setId(productId);
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProduct(product);
+            orderItem.setQuantity(1);
+            order.addItem(orderItem);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void returnProducts() {
+        productService.returnProducts(order);
+    }
+}
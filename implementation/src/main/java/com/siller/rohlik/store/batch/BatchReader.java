@@ -0,0 +1,117 @@
+package com.siller.rohlik.store.batch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the rows of a batch body one by one, from NDJSON or from a JSON array (or a sequence of JSON values).
+ * A row that cannot be read is returned as malformed and reading continues with the next one: an NDJSON row
+ * ends at its line, and an array element that is valid JSON but does not fit the row type can be skipped.
+ * Invalid JSON in an array gives no point to resume at, so reading stops after reporting it.
+ */
+public class BatchReader<T> implements Closeable {
+
+    public record Row<T>(T value) {
+
+        public boolean isMalformed() {
+            return value == null;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> rowType;
+    private final BufferedReader lines;
+    private final JsonParser parser;
+    private boolean array;
+    private boolean started;
+    private boolean finished;
+
+    private BatchReader(ObjectMapper objectMapper, Class<T> rowType, BufferedReader lines, JsonParser parser) {
+        this.objectMapper = objectMapper;
+        this.rowType = rowType;
+        this.lines = lines;
+        this.parser = parser;
+    }
+
+    public static <T> BatchReader<T> ofNdjson(ObjectMapper objectMapper, InputStream body, Class<T> rowType) {
+        return new BatchReader<>(
+                objectMapper, rowType, new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), null
+        );
+    }
+
+    public static <T> BatchReader<T> ofJson(ObjectMapper objectMapper, InputStream body, Class<T> rowType) throws IOException {
+        return new BatchReader<>(objectMapper, rowType, null, objectMapper.createParser(body));
+    }
+
+    /**
+     * Returns the next row, or null at the end of the body or after a malformed row reading cannot resume from.
+     */
+    public Row<T> next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        return lines != null ? nextLine() : nextValue();
+    }
+
+    private Row<T> nextLine() throws IOException {
+        String line = lines.readLine();
+        while (line != null && line.isBlank()) {
+            line = lines.readLine();
+        }
+        if (line == null) {
+            finished = true;
+            return null;
+        }
+        try {
+            return new Row<>(objectMapper.readValue(line, rowType));
+        } catch (JsonProcessingException e) {
+            return new Row<>(null);
+        }
+    }
+
+    private Row<T> nextValue() throws IOException {
+        JsonNode node;
+        try {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                array = token == JsonToken.START_ARRAY;
+                if (array) {
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || (array && token == JsonToken.END_ARRAY)) {
+                finished = true;
+                return null;
+            }
+            node = parser.readValueAsTree();
+        } catch (JsonProcessingException e) {
+            finished = true;
+            return new Row<>(null);
+        }
+        try {
+            return new Row<>(objectMapper.treeToValue(node, rowType));
+        } catch (JsonProcessingException e) {
+            return new Row<>(null);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lines != null) {
+            lines.close();
+        } else {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.siller.rohlik.store.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class OptimisticLockingRetryAspect {
+
+    static final String CONFLICTS_METRIC = "store.optimistic.locking.conflicts";
+    static final String RETRIES_METRIC = "store.optimistic.locking.retries";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticLockingRetryAspect(
+            MeterRegistry meterRegistry,
+            @Value("${optimisticLocking.retry.maxAttempts}") int maxAttempts,
+            @Value("${optimisticLocking.retry.initialBackoffMillis}") long initialBackoffMillis,
+            @Value("${optimisticLocking.retry.maxBackoffMillis}") long maxBackoffMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Around("@annotation(com.siller.rohlik.store.concurrency.RetryOnOptimisticLockingFailure)")
+    public Object retryOnOptimisticLockingFailure(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                counter(CONFLICTS_METRIC, operation).increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up {} after {} optimistic locking conflicts", operation, attempt);
+                    throw e;
+                }
+                counter(RETRIES_METRIC, operation).increment();
+                long backoff = backoffMillis(attempt);
+                log.debug("Optimistic locking conflict in {}, retrying in {} ms", operation, backoff);
+                sleep(backoff, e);
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis, OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.siller.rohlik.store.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method whose whole transaction is repeated with jittered backoff when it fails
+ * on an optimistic locking conflict. Has no effect when the method joins an already running transaction.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLockingFailure {
+}
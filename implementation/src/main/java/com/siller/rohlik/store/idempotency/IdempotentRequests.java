@@ -0,0 +1,169 @@
+package com.siller.rohlik.store.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.siller.rohlik.store.idempotency.model.IdempotentResponse;
+import com.siller.rohlik.store.idempotency.repository.IdempotentResponseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Answers retries of requests carrying an {@code Idempotency-Key} with the recorded response of the first
+ * successful attempt. Recorded responses are kept in the {@code IdempotentResponse} table for
+ * {@code idempotency.timeToLiveSeconds}, the most recent ones also in memory.
+ */
+@Component
+@Slf4j
+public class IdempotentRequests {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final String CACHE_NAME = "idempotentResponses";
+
+    private final IdempotentResponseRecorder idempotentResponseRecorder;
+    private final IdempotentResponseRepository idempotentResponseRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration timeToLive;
+    private final Cache<String, IdempotentResponse> cache;
+
+    public IdempotentRequests(
+            IdempotentResponseRecorder idempotentResponseRecorder,
+            IdempotentResponseRepository idempotentResponseRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.timeToLiveSeconds}") Long timeToLiveSeconds,
+            @Value("${idempotency.cache.maximumSize}") Long maximumSize) {
+        this.idempotentResponseRecorder = idempotentResponseRecorder;
+        this.idempotentResponseRepository = idempotentResponseRepository;
+        this.objectMapper = objectMapper;
+        this.timeToLive = Duration.ofSeconds(timeToLiveSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Runs the request unless a response was already recorded for its key. A key reused for a different request
+     * body is answered with 422, a key too long to be recorded with 400. A response that expired but was not
+     * purged yet counts as not recorded and is replaced.
+     *
+     * @param scope operation and resource the key belongs to
+     */
+    public <T> ResponseEntity<T> execute(
+            String scope, String idempotencyKey, Object requestBody, Class<T> responseType,
+            Supplier<ResponseEntity<T>> request) {
+        if (idempotencyKey == null) {
+            return request.get();
+        }
+        String id = scope + " " + idempotencyKey;
+        if (id.length() > IdempotentResponse.MAX_ID_LENGTH) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        String requestHash = hash(requestBody);
+        Optional<IdempotentResponse> recordedResponse = findRecordedResponse(id);
+        if (recordedResponse.isEmpty()) {
+            try {
+                return idempotentResponseRecorder.executeAndRecord(
+                        request, response -> recordResponse(id, requestHash, response)
+                );
+            } catch (DataIntegrityViolationException e) {
+                recordedResponse = findRecordedResponse(id);
+                if (recordedResponse.isEmpty()) {
+                    throw e;
+                }
+                log.debug("Concurrent retry of {} was answered by the first attempt", id);
+            }
+        }
+        return replay(recordedResponse.get(), requestHash, responseType);
+    }
+
+    private Optional<IdempotentResponse> findRecordedResponse(String id) {
+        IdempotentResponse cachedResponse = cache.getIfPresent(id);
+        if (cachedResponse != null && !cachedResponse.getCreatedAt().before(expiredBefore())) {
+            return Optional.of(cachedResponse);
+        }
+        Optional<IdempotentResponse> storedResponse = idempotentResponseRepository.findCreatedAfter(id, expiredBefore());
+        storedResponse.ifPresent(response -> cache.put(id, response));
+        return storedResponse;
+    }
+
+    private IdempotentResponse recordResponse(String id, String requestHash, ResponseEntity<?> response) {
+        idempotentResponseRepository.deleteCreatedBefore(id, expiredBefore());
+        IdempotentResponse recordedResponse = new IdempotentResponse(
+                id, requestHash, response.getStatusCode().value(), toJson(response.getBody()),
+                new Timestamp(System.currentTimeMillis())
+        );
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(id, recordedResponse);
+            }
+        });
+        return recordedResponse;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotentResponse recordedResponse, String requestHash, Class<T> responseType) {
+        if (!recordedResponse.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        try {
+            T body = recordedResponse.getBody() == null ? null : objectMapper.readValue(recordedResponse.getBody(), responseType);
+            return ResponseEntity.status(recordedResponse.getStatus())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Recorded response " + recordedResponse.getId() + " cannot be read", e);
+        }
+    }
+
+    @Scheduled(cron = "${idempotency.purgeCronExpression}")
+    @Transactional
+    public void purgeExpiredResponses() {
+        int purged = idempotentResponseRepository.deleteCreatedBefore(expiredBefore());
+        log.debug("Purged {} expired idempotent responses", purged);
+    }
+
+    private Timestamp expiredBefore() {
+        return new Timestamp(System.currentTimeMillis() - timeToLive.toMillis());
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Response cannot be recorded", e);
+        }
+    }
+
+    private String hash(Object requestBody) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(requestBody))
+            );
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Request cannot be hashed", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.siller.rohlik.store.idempotency;
+
+import com.siller.rohlik.store.concurrency.RetryOnOptimisticLockingFailure;
+import com.siller.rohlik.store.idempotency.model.IdempotentResponse;
+import com.siller.rohlik.store.idempotency.repository.IdempotentResponseRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+public class IdempotentResponseRecorder {
+
+    private final IdempotentResponseRepository idempotentResponseRepository;
+
+    /**
+     * Runs the request and records its response in the same transaction when it is successful.
+     */
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    public <T> ResponseEntity<T> executeAndRecord(
+            Supplier<ResponseEntity<T>> request, Function<ResponseEntity<T>, IdempotentResponse> toRecord) {
+        ResponseEntity<T> response = request.get();
+        if (response.getStatusCode().is2xxSuccessful()) {
+            idempotentResponseRepository.saveAndFlush(toRecord.apply(response));
+        }
+        return response;
+    }
+}
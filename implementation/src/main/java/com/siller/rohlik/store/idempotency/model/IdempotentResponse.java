@@ -0,0 +1,47 @@
+package com.siller.rohlik.store.idempotency.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.sql.Timestamp;
+
+/**
+ * Successful response to a request with an {@code Idempotency-Key}. It is only ever inserted, so a concurrent
+ * retry of the same request fails on the primary key instead of being processed twice.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idempotent_response_created_at_idx", columnList = "created_at"))
+public class IdempotentResponse implements Persistable<String> {
+
+    public static final int MAX_ID_LENGTH = 512;
+
+    @Id
+    @Column(length = MAX_ID_LENGTH)
+    private String id;
+
+    private String requestHash;
+
+    private Integer status;
+
+    @Column(length = 4096)
+    private String body;
+
+    private Timestamp createdAt;
+
+    public IdempotentResponse(String id, String requestHash, Integer status, String body, Timestamp createdAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.body = body;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
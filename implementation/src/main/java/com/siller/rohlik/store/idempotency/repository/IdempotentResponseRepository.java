@@ -0,0 +1,23 @@
+package com.siller.rohlik.store.idempotency.repository;
+
+import com.siller.rohlik.store.idempotency.model.IdempotentResponse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+public interface IdempotentResponseRepository extends JpaRepository<IdempotentResponse, String> {
+
+    @Query("select r from IdempotentResponse r where r.id = :id and r.createdAt >= :createdAfter")
+    Optional<IdempotentResponse> findCreatedAfter(String id, Timestamp createdAfter);
+
+    @Modifying
+    @Query("delete from IdempotentResponse r where r.id = :id and r.createdAt < :createdBefore")
+    int deleteCreatedBefore(String id, Timestamp createdBefore);
+
+    @Modifying
+    @Query("delete from IdempotentResponse r where r.createdAt < :createdBefore")
+    int deleteCreatedBefore(Timestamp createdBefore);
+}
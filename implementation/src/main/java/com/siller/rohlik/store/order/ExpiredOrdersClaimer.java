@@ -0,0 +1,53 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.order.model.ActiveOrderReference;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import jakarta.transaction.Transactional;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class ExpiredOrdersClaimer {
+
+    private final ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Transactional
+    public ClaimedPage claimPage(String nodeId, Timestamp createdBefore, Long afterId, int pageSize, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        Timestamp nowTimestamp = new Timestamp(now);
+        Timestamp claimedUntil = new Timestamp(now + leaseMillis);
+        List<ActiveOrderReference> candidates = activeOrderMetadataRepository.findUnclaimedCreatedBeforeAfterId(
+                createdBefore, afterId, nowTimestamp, PageRequest.of(0, pageSize)
+        );
+        if (candidates.isEmpty()) {
+            return new ClaimedPage(candidates, candidates);
+        }
+        List<Long> candidateIds = candidates.stream()
+                .map(ActiveOrderReference::getId)
+                .toList();
+        activeOrderMetadataRepository.claim(candidateIds, nodeId, claimedUntil, nowTimestamp);
+        List<ActiveOrderReference> claimed = activeOrderMetadataRepository.findClaimed(candidateIds, nodeId, claimedUntil);
+        return new ClaimedPage(candidates, claimed);
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    public static class ClaimedPage {
+        private final List<ActiveOrderReference> candidates;
+        private final List<ActiveOrderReference> claimed;
+
+        public boolean isEmpty() {
+            return candidates.isEmpty();
+        }
+
+        public Long getLastCandidateId() {
+            return candidates.getLast().getId();
+        }
+    }
+}
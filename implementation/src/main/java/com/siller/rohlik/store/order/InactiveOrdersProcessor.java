@@ -1,11 +1,10 @@
 package com.siller.rohlik.store.order;
 
-import com.siller.rohlik.store.order.model.ActiveOrderMetadata;
-import com.siller.rohlik.store.order.model.Order;
-import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
-import com.siller.rohlik.store.order.repository.OrderRepository;
-import com.siller.rohlik.store.product.ProductService;
-import jakarta.transaction.Transactional;
+import com.siller.rohlik.store.order.model.ActiveOrderReference;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,44 +12,126 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
 public class InactiveOrdersProcessor {
 
-    private final OrderRepository orderRepository;
-    private final ActiveOrderMetadataRepository activeOrderMetadataRepository;
+    static final String SWEEP_DURATION_METRIC = "store.orders.sweep.duration";
+    static final String SWEEP_BATCH_SIZE_METRIC = "store.orders.sweep.batch.size";
+
+    private final OrderService orderService;
+    private final ExpiredOrdersClaimer expiredOrdersClaimer;
 
     private final Integer activePaymentsShouldBeInvalidatedAfterSeconds;
-    private final ProductService productService;
+    private final Integer pageSize;
+    private final String nodeId;
+    private final Long leaseMillis;
+    private final ExecutorService workers;
+    private final Semaphore freeWorkers;
+    private final Timer sweepDuration;
+    private final DistributionSummary sweepBatchSize;
 
     public InactiveOrdersProcessor(
-            @Autowired  OrderRepository orderRepository,
-            @Autowired  ActiveOrderMetadataRepository activeOrderMetadataRepository,
-            @Value("${activePaymentsShouldBeInvalidatedAfterSeconds}") Integer activePaymentsShouldBeInvalidatedAfterSeconds, ProductService productService) {
-        this.orderRepository = orderRepository;
-        this.activeOrderMetadataRepository = activeOrderMetadataRepository;
+            @Autowired OrderService orderService,
+            @Autowired ExpiredOrdersClaimer expiredOrdersClaimer,
+            @Autowired MeterRegistry meterRegistry,
+            @Value("${activePaymentsShouldBeInvalidatedAfterSeconds}") Integer activePaymentsShouldBeInvalidatedAfterSeconds,
+            @Value("${inactiveOrdersProcessor.pageSize}") Integer pageSize,
+            @Value("${inactiveOrdersProcessor.nodeId}") String nodeId,
+            @Value("${inactiveOrdersProcessor.leaseSeconds}") Integer leaseSeconds,
+            @Value("${inactiveOrdersProcessor.workerThreads}") Integer workerThreads,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.orderService = orderService;
+        this.expiredOrdersClaimer = expiredOrdersClaimer;
         this.activePaymentsShouldBeInvalidatedAfterSeconds = activePaymentsShouldBeInvalidatedAfterSeconds;
-        this.productService = productService;
+        this.pageSize = pageSize;
+        this.nodeId = nodeId;
+        this.leaseMillis = 1000L * leaseSeconds;
+        this.workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("inactive-orders-", 1).factory())
+                : Executors.newFixedThreadPool(workerThreads, new WorkerThreadFactory());
+        this.freeWorkers = new Semaphore(workerThreads);
+        this.sweepDuration = Timer.builder(SWEEP_DURATION_METRIC)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sweepBatchSize = DistributionSummary.builder(SWEEP_BATCH_SIZE_METRIC)
+                .baseUnit("orders")
+                .register(meterRegistry);
     }
 
     @Scheduled(cron = "${inactiveOrdersProcessor.cronExpression}")
-    @Transactional
-    public void scheduleTaskUsingCronExpression() {
-        Timestamp timestamp = new Timestamp(System.currentTimeMillis() - 1000L * activePaymentsShouldBeInvalidatedAfterSeconds);
-        List<ActiveOrderMetadata> metadataOfOrdersToInActivate = activeOrderMetadataRepository.findAllByCreatedAtBefore(timestamp);
-        for(ActiveOrderMetadata orderMetadata : metadataOfOrdersToInActivate) {
-            invalidateOrder(orderMetadata);
-            log.debug("Invalidating inactive order: {}", orderMetadata);
+    public void scheduleTaskUsingCronExpression() throws InterruptedException {
+        Timer.Sample sample = Timer.start();
+        try {
+            sweep();
+        } finally {
+            sample.stop(sweepDuration);
         }
+    }
+
+    private void sweep() throws InterruptedException {
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis() - 1000L * activePaymentsShouldBeInvalidatedAfterSeconds);
+        List<Future<?>> submittedPages = new ArrayList<>();
+        Long lastSeenId = Long.MIN_VALUE;
+        ExpiredOrdersClaimer.ClaimedPage page;
+        do {
+            page = expiredOrdersClaimer.claimPage(nodeId, timestamp, lastSeenId, pageSize, leaseMillis);
+            if (!page.isEmpty()) {
+                lastSeenId = page.getLastCandidateId();
+                if (!page.getClaimed().isEmpty()) {
+                    sweepBatchSize.record(page.getClaimed().size());
+                    freeWorkers.acquire();
+                    submittedPages.add(workers.submit(invalidation(page.getClaimed())));
+                }
+            }
+        } while (page.getCandidates().size() == pageSize);
+        awaitInvalidations(submittedPages);
         log.trace("schedule tasks using cron jobs - " + timestamp);
     }
 
-    private void invalidateOrder(ActiveOrderMetadata orderMetadata) {
-        orderMetadata.getOrder().setState(Order.State.INVALIDATED);
-        productService.returnProducts(orderMetadata.getOrder());
-        orderRepository.save(orderMetadata.getOrder());
-        activeOrderMetadataRepository.delete(orderMetadata);
+    private Runnable invalidation(List<ActiveOrderReference> claimedOrders) {
+        return () -> {
+            try {
+                List<String> orderIds = claimedOrders.stream()
+                        .map(ActiveOrderReference::getOrderId)
+                        .toList();
+                orderService.invalidateActiveOrders(orderIds);
+                log.debug("Invalidated inactive orders: {}", orderIds);
+            } finally {
+                freeWorkers.release();
+            }
+        };
+    }
+
+    private static void awaitInvalidations(List<Future<?>> submittedPages) throws InterruptedException {
+        for (Future<?> submittedPage : submittedPages) {
+            try {
+                submittedPage.get();
+            } catch (ExecutionException e) {
+                log.error("Invalidation of inactive orders failed, they will be picked up again after their lease expires", e.getCause());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "inactive-orders-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
@@ -1,18 +1,24 @@
 package com.siller.rohlik.store.order;
 
+import com.siller.rohlik.store.idempotency.IdempotentRequests;
 import com.siller.rohlik.store.order.model.CreateNewOrderError;
 import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderDetail;
+import com.siller.rohlik.store.order.model.OrderSummary;
 import com.siller.rohlik.store.rest.api.order.OrdersApi;
 import com.siller.rohlik.store.rest.model.order.*;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.ValidationException;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,23 +26,101 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class OrderController implements OrdersApi {
 
+    static final String VALIDATION_ERRORS_METRIC = "store.orders.validation.errors";
 
     private final OrderService orderService;
+    private final IdempotentRequests idempotentRequests;
+    private final Optional<OrderQueue> orderQueue;
+    private final Optional<OrderGroupCommit> orderGroupCommit;
+    private final MeterRegistry meterRegistry;
 
 
     @Override
-    @Transactional
-    public ResponseEntity<CreateNewOrderResponseDto> createNewOrder(OrderDto orderDto) {
-        Order order = orderService.createOrder(orderDto);
-        return new ResponseEntity<>(new CreateNewOrderResponseDto(order.getId()), HttpStatus.CREATED);
+    public ResponseEntity<CreateNewOrderResponseDto> createNewOrder(OrderDto orderDto, String idempotencyKey) {
+        return idempotentRequests.execute("POST /orders", idempotencyKey, orderDto, CreateNewOrderResponseDto.class, () -> {
+            if (orderQueue.isPresent()) {
+                String orderId = orderQueue.get().accept(orderDto);
+                return new ResponseEntity<>(new CreateNewOrderResponseDto(orderId), HttpStatus.ACCEPTED);
+            }
+            Order order = orderGroupCommit.isPresent()
+                    ? orderGroupCommit.get().createOrder(orderDto)
+                    : orderService.createOrder(orderDto);
+            return new ResponseEntity<>(new CreateNewOrderResponseDto(order.getId()), HttpStatus.CREATED);
+        });
+    }
+
+    @Override
+    public ResponseEntity<OrderCreationStatusDto> getOrderCreationStatus(String orderId) {
+        Optional<OrderQueue.Outcome> outcome = orderQueue.flatMap(queue -> queue.findOutcome(orderId));
+        if (outcome.isPresent()) {
+            return ResponseEntity.ok(new OrderCreationStatusDto(orderId, outcome.get().status().name())
+                    .errors(toErrorDtos(outcome.get().errors())));
+        }
+        if (orderService.findOrderVersion(orderId).isPresent()) {
+            return ResponseEntity.ok(new OrderCreationStatusDto(orderId, "CREATED"));
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    @Override
+    public ResponseEntity<OrderDetailDto> getOrder(String orderId, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = orderService.findOrderVersion(orderId);
+            if (version.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (matchesETag(ifNoneMatch, eTagOf(version.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTagOf(version.get())).build();
+            }
+        }
+        Optional<OrderDetail> order = orderService.findOrderDetail(orderId);
+        return order.map(detail -> ResponseEntity.ok().eTag(eTagOf(detail.version())).body(toDetailDto(detail)))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @Override
+    public ResponseEntity<OrderSummaryPageDto> listOrders(String customerId, String after, Integer limit) {
+        List<OrderSummary> orders = orderService.findOrdersOfCustomer(customerId, after, limit + 1);
+        OrderSummaryPageDto page = new OrderSummaryPageDto(orders.subList(0, Math.min(limit, orders.size())).stream()
+                .map(order -> new OrderSummaryDto(order.id(), order.state().name()).totalPrice(order.totalPrice()))
+                .toList());
+        if (orders.size() > limit) {
+            page.setNextCursor(orders.get(limit - 1).id());
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    private static String eTagOf(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(eTag));
+    }
+
+    private static OrderDetailDto toDetailDto(OrderDetail order) {
+        return new OrderDetailDto()
+                .id(order.id())
+                .customerId(order.customerId())
+                .state(order.state().name())
+                .totalPrice(order.totalPrice())
+                .orderItems(order.items().stream()
+                        .map(item -> new OrderDetailItemDto()
+                                .productId(item.productId())
+                                .productName(item.productName())
+                                .quantity(item.quantity())
+                                .unitPrice(item.unitPrice()))
+                        .toList());
     }
 
     @Override
     public ResponseEntity<Void> setOrderState(String orderId, WriteableOrderStateDto writeableOrderStateDto) {
         validateRequestedState(writeableOrderStateDto);
-        Optional<Order> optionalOrder = orderService.findById(orderId);
-        if (optionalOrder.isPresent()) {
-            orderService.cancelOrder(optionalOrder.get());
+        Optional<Order> canceledOrder = orderService.cancelOrder(orderId);
+        if (canceledOrder.isPresent()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -51,15 +135,35 @@ public class OrderController implements OrdersApi {
 
     @ExceptionHandler(CreateNewOrderException.class)
     ResponseEntity<CreateNewOrderErrorResponseDto> handleException(CreateNewOrderException createNewOrderException) {
-        List<CreateNewOrderErrorDto> errorDtos = createNewOrderException.getErrors().stream()
+        createNewOrderException.getErrors().forEach(error ->
+                meterRegistry.counter(VALIDATION_ERRORS_METRIC, "code", error.getErrorCode().name()).increment());
+        return new ResponseEntity<>(
+                new CreateNewOrderErrorResponseDto().errors(toErrorDtos(createNewOrderException.getErrors())),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    ResponseEntity<Void> handleException(ConstraintViolationException constraintViolationException) {
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(OrderQueue.QueueFullException.class)
+    ResponseEntity<Void> handleException(OrderQueue.QueueFullException queueFullException) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    @ExceptionHandler(OrderGroupCommit.GroupCommitUnavailableException.class)
+    ResponseEntity<Void> handleException(OrderGroupCommit.GroupCommitUnavailableException groupCommitUnavailableException) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    static List<CreateNewOrderErrorDto> toErrorDtos(List<CreateNewOrderError> errors) {
+        return errors.stream()
                 .map(error -> new CreateNewOrderErrorDto()
                         .errorCode(error.getErrorCode().name())
                         .productId(error.getProductId()))
                 .toList();
-        return new ResponseEntity<>(
-                new CreateNewOrderErrorResponseDto().errors(errorDtos),
-                HttpStatus.BAD_REQUEST
-        );
     }
 
     public static class CreateNewOrderException extends RuntimeException {
@@ -0,0 +1,21 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.model.Order;
+
+import java.util.List;
+
+record OrderCreationResult(Order order, List<CreateNewOrderError> errors) {
+
+    static OrderCreationResult created(Order order) {
+        return new OrderCreationResult(order, List.of());
+    }
+
+    static OrderCreationResult rejected(List<CreateNewOrderError> errors) {
+        return new OrderCreationResult(null, errors);
+    }
+
+    boolean isCreated() {
+        return order != null;
+    }
+}
@@ -3,34 +3,81 @@ package com.siller.rohlik.store.order;
 import com.siller.rohlik.store.order.model.ActiveOrderMetadata;
 import com.siller.rohlik.store.order.model.CreateNewOrderError;
 import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderItem;
+import com.siller.rohlik.store.product.model.CatalogProduct;
 import com.siller.rohlik.store.product.model.Product;
 import com.siller.rohlik.store.rest.model.order.OrderDto;
 import com.siller.rohlik.store.rest.model.order.OrderItemDto;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.function.Function;
 
-
+/**
+ * Validates an order and creates its items in one pass over its products. Lines of the same product are merged
+ * into the position of their first line, so that its stock is checked and reserved once for their summed
+ * quantity. The state of every position is kept in arrays and error objects are only created for rejected orders.
+ */
 public class OrderCreator {
 
+    // Up to this many products a duplicate line is found by comparing the hashes of the previous products, larger
+    // baskets index their products in a map.
+    private static final int LINEAR_SCAN_LIMIT = 32;
+    // Platform threads handle request after request, so each keeps the position arrays of its last order for the
+    // next one. A virtual thread handles one request only, where a thread local would just hold the arrays until it
+    // ends, so orders on virtual threads allocate their own.
+    private static final ThreadLocal<Positions> REUSABLE_POSITIONS = new ThreadLocal<>();
+    private static final int REUSABLE_POSITIONS_LIMIT = 256;
+
+    private final String orderId;
     private final OrderDto orderDto;
     private Order order;
     private ActiveOrderMetadata activeOrderMetadata;
-    private final List<CreateNewOrderError> errors = new LinkedList<>();
-    private final Function<String, Optional<Product>> productsSupplier;
+    private List<CreateNewOrderError> errors = List.of();
+    private final Function<Collection<String>, Map<String, CatalogProduct>> productsLoader;
+    private final Function<Collection<String>, Map<String, Integer>> stockLoader;
+    private final Function<String, Product> productReference;
+
+    private Positions positions;
+    private String[] productIds;
+    private int[] productIdHashes;
+    private int[] quantities;
+    private boolean[] missingQuantities;
+    private Map<String, Integer> positionsByProductId;
+    private int productCount;
+    private boolean missingProductId;
 
-    OrderCreator(OrderDto orderDto, Function<String, Optional<Product>> productsSupplier) {
+    OrderCreator(
+            OrderDto orderDto,
+            Function<Collection<String>, Map<String, CatalogProduct>> productsLoader,
+            Function<Collection<String>, Map<String, Integer>> stockLoader,
+            Function<String, Product> productReference) {
+        this(UUID.randomUUID().toString(), orderDto, productsLoader, stockLoader, productReference);
+    }
+
+    OrderCreator(
+            String orderId,
+            OrderDto orderDto,
+            Function<Collection<String>, Map<String, CatalogProduct>> productsLoader,
+            Function<Collection<String>, Map<String, Integer>> stockLoader,
+            Function<String, Product> productReference) {
+        this.orderId = orderId;
         this.orderDto = orderDto;
-        this.productsSupplier = productsSupplier;
+        this.productsLoader = productsLoader;
+        this.stockLoader = stockLoader;
+        this.productReference = productReference;
     }
 
     void createOrder() {
         if (!orderIsCreated()) {
             createOrderAndMetadata();
-            processOrderItems();
+            try {
+                mergeLinesOfSameProduct();
+                processProducts();
+            } finally {
+                releasePositions();
+            }
         }
     }
 
@@ -40,22 +87,185 @@ public class OrderCreator {
 
     private void createOrderAndMetadata() {
         this.order = new Order();
+        order.setId(orderId);
         order.setState(Order.State.ACTIVE);
+        order.setCustomerId(orderDto.getCustomerId());
         this.activeOrderMetadata = new ActiveOrderMetadata(order, new Timestamp(System.currentTimeMillis()));
     }
 
-    private void processOrderItems() {
-        for (OrderItemDto orderItemDto : orderDto.getOrderItems()) {
-            OrderItemCreator orderItemCreator = new OrderItemCreator(order, orderItemDto, productsSupplier);
-            if(orderItemCreator.successfullyCreatedItem()){
-                order.addItem(orderItemCreator.getItem());
+    private void mergeLinesOfSameProduct() {
+        List<OrderItemDto> lines = orderDto.getOrderItems();
+        acquirePositions(lines.size());
+        for (OrderItemDto line : lines) {
+            int position = positionOf(line.getProductId());
+            if (position < 0) {
+                position = addProduct(line.getProductId());
+            }
+            if (line.getQuantity() == null) {
+                missingQuantities[position] = true;
+            } else {
+                quantities[position] = (int) Math.min(Integer.MAX_VALUE, (long) quantities[position] + line.getQuantity());
+            }
+        }
+    }
+
+    // The reused arrays may be longer than the basket, they are cleared up to the basket size.
+    private void acquirePositions(int lineCount) {
+        positions = Thread.currentThread().isVirtual() ? null : REUSABLE_POSITIONS.get();
+        if (positions != null && positions.productIds.length >= lineCount) {
+            REUSABLE_POSITIONS.remove();
+            Arrays.fill(positions.quantities, 0, lineCount, 0);
+            Arrays.fill(positions.missingQuantities, 0, lineCount, false);
+        } else {
+            positions = new Positions(lineCount);
+        }
+        productIds = positions.productIds;
+        productIdHashes = positions.productIdHashes;
+        quantities = positions.quantities;
+        missingQuantities = positions.missingQuantities;
+    }
+
+    private void releasePositions() {
+        if (positions == null) {
+            return;
+        }
+        if (!Thread.currentThread().isVirtual() && productIds.length <= REUSABLE_POSITIONS_LIMIT) {
+            Arrays.fill(productIds, 0, productCount, null);
+            REUSABLE_POSITIONS.set(positions);
+        }
+        positions = null;
+        productIds = null;
+        productIdHashes = null;
+        quantities = null;
+        missingQuantities = null;
+    }
+
+    private int positionOf(String productId) {
+        if (positionsByProductId != null) {
+            return positionsByProductId.getOrDefault(productId, -1);
+        }
+        int hash = Objects.hashCode(productId);
+        for (int position = 0; position < productCount; position++) {
+            if (productIdHashes[position] == hash && Objects.equals(productIds[position], productId)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private int addProduct(String productId) {
+        int position = productCount++;
+        productIds[position] = productId;
+        productIdHashes[position] = Objects.hashCode(productId);
+        missingProductId |= productId == null;
+        if (positionsByProductId != null) {
+            positionsByProductId.put(productId, position);
+        } else if (productCount > LINEAR_SCAN_LIMIT) {
+            positionsByProductId = new HashMap<>(2 * orderDto.getOrderItems().size());
+            for (int indexed = 0; indexed < productCount; indexed++) {
+                positionsByProductId.put(productIds[indexed], indexed);
+            }
+        }
+        return position;
+    }
+
+    private void processProducts() {
+        Map<String, CatalogProduct> productsById = loadProducts();
+        List<OrderItem> items = new ArrayList<>(productCount);
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        CreateNewOrderError.Code[] problems = null;
+        for (int position = 0; position < productCount; position++) {
+            CatalogProduct product = productIds[position] == null ? null : productsById.get(productIds[position]);
+            CreateNewOrderError.Code problem = problemOf(position, product);
+            if (problem != null) {
+                if (problems == null) {
+                    problems = new CreateNewOrderError.Code[productCount];
+                }
+                problems[position] = problem;
+            } else if (problems == null) {
+                items.add(createItem(product, quantities[position]));
+                totalPrice = totalPrice.add(product.price().multiply(BigDecimal.valueOf(quantities[position])));
+            }
+        }
+        if (problems == null) {
+            order.setItems(items);
+            order.setTotalPrice(totalPrice);
+        } else {
+            order.setTotalPrice(BigDecimal.ZERO);
+            reportErrors(problems);
+        }
+    }
+
+    private CreateNewOrderError.Code problemOf(int position, CatalogProduct product) {
+        if (missingQuantities[position]) {
+            return CreateNewOrderError.Code.MISSING_QUANTITY;
+        } else if (product == null) {
+            return CreateNewOrderError.Code.INVALID_PRODUCT;
+        } else if (!product.finished()) {
+            return CreateNewOrderError.Code.UNFINISHED_PRODUCT;
+        }
+        return null;
+    }
+
+    private OrderItem createItem(CatalogProduct product, int quantity) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProduct(productReference.apply(product.id()));
+        orderItem.setQuantity(quantity);
+        orderItem.setUnitPrice(product.price());
+        orderItem.setOrder(order);
+        return orderItem;
+    }
+
+    // Stock is reserved only for valid orders, so it is looked up here just to report all errors of a rejected one.
+    private void reportErrors(CreateNewOrderError.Code[] problems) {
+        List<String> validProductIds = new ArrayList<>();
+        for (int position = 0; position < productCount; position++) {
+            if (problems[position] == null) {
+                validProductIds.add(productIds[position]);
             }
-            else {
-                errors.addAll(orderItemCreator.getErrors());
+        }
+        Map<String, Integer> stock = validProductIds.isEmpty() ? Map.of() : stockLoader.apply(validProductIds);
+        errors = new ArrayList<>();
+        for (int position = 0; position < productCount; position++) {
+            if (problems[position] != null) {
+                errors.add(new CreateNewOrderError(productIds[position], problems[position]));
+            } else if (isNotOnStock(position, stock)) {
+                errors.add(new CreateNewOrderError(productIds[position], CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK));
             }
         }
     }
 
+    private boolean isNotOnStock(int position, Map<String, Integer> stock) {
+        Integer quantity = stock.get(productIds[position]);
+        return quantity == null || quantity < quantities[position];
+    }
+
+    private Map<String, CatalogProduct> loadProducts() {
+        if (productCount == 0 || (productCount == 1 && missingProductId)) {
+            return Map.of();
+        }
+        List<String> distinctProductIds = Arrays.asList(productIds).subList(0, productCount);
+        if (missingProductId) {
+            distinctProductIds = new ArrayList<>(distinctProductIds);
+            distinctProductIds.remove(null);
+        }
+        return productsLoader.apply(distinctProductIds);
+    }
+
+    private static final class Positions {
+
+        private final String[] productIds;
+        private final int[] productIdHashes;
+        private final int[] quantities;
+        private final boolean[] missingQuantities;
+
+        private Positions(int lineCount) {
+            productIds = new String[lineCount];
+            productIdHashes = new int[lineCount];
+            quantities = new int[lineCount];
+            missingQuantities = new boolean[lineCount];
+        }
+    }
 
     public Order getOrder() {
         createOrder();
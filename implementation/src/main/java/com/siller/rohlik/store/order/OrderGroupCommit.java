@@ -0,0 +1,195 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Creates orders of concurrent requests in shared transactions, so that the commit is paid once per group
+ * instead of once per order. A committer takes the first waiting order, collects further ones for at most
+ * {@code orderGroupCommit.windowMillis} or until {@code orderGroupCommit.maxBatchSize} of them are collected and
+ * creates them together, each order being created or rejected on its own. The requests wait for the outcome of
+ * their order, so they are answered as without grouping, only later by up to the window. A request gives up after
+ * the window and {@code orderGroupCommit.transactionTimeoutMillis}, its order is then not created unless its group
+ * is being created already.
+ */
+@Component
+@ConditionalOnProperty(name = "orderGroupCommit.enabled", havingValue = "true")
+@Slf4j
+public class OrderGroupCommit {
+
+    static final String BATCH_SIZE_METRIC = "store.orders.group.commit.size";
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OrderService orderService;
+    private final QueuedOrderCreator queuedOrderCreator;
+
+    private final long windowNanos;
+    private final long waitMillis;
+    private final int maxBatchSize;
+    private final int committerCount;
+    private final BlockingQueue<WaitingOrder> waitingOrders = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSizes;
+    private final ExecutorService committers;
+    private volatile boolean running = true;
+
+    public OrderGroupCommit(
+            OrderService orderService,
+            QueuedOrderCreator queuedOrderCreator,
+            MeterRegistry meterRegistry,
+            @Value("${orderGroupCommit.windowMillis}") Long windowMillis,
+            @Value("${orderGroupCommit.transactionTimeoutMillis}") Long transactionTimeoutMillis,
+            @Value("${orderGroupCommit.maxBatchSize}") Integer maxBatchSize,
+            @Value("${orderGroupCommit.committers}") Integer committers,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.orderService = orderService;
+        this.queuedOrderCreator = queuedOrderCreator;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.waitMillis = windowMillis + transactionTimeoutMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.committerCount = committers;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Orders created per transaction")
+                .baseUnit("orders")
+                .maximumExpectedValue(maxBatchSize.doubleValue())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.committers = Executors.newFixedThreadPool(committers, virtualThreads
+                ? Thread.ofVirtual().name("order-group-commit-", 0).factory()
+                : Thread.ofPlatform().name("order-group-commit-", 0).daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < committerCount; i++) {
+            committers.execute(this::commitGroups);
+        }
+    }
+
+    /**
+     * Creates the order in the next group. An order of a caller already running a transaction is created in it,
+     * so that it is committed or rolled back together with the caller's other changes.
+     *
+     * @throws OrderController.CreateNewOrderException when the order was rejected
+     * @throws GroupCommitUnavailableException when the order was not created in time or orders are not created anymore
+     */
+    public Order createOrder(OrderDto orderDto) {
+        if (!running || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return orderService.createOrder(orderDto);
+        }
+        WaitingOrder waitingOrder = new WaitingOrder(
+                new QueuedOrder(UUID.randomUUID().toString(), orderDto), new CompletableFuture<>()
+        );
+        waitingOrders.add(waitingOrder);
+        if (!running && waitingOrders.remove(waitingOrder)) {
+            throw new GroupCommitUnavailableException("Orders are not created anymore");
+        }
+        OrderCreationResult result;
+        try {
+            result = waitingOrder.result().orTimeout(waitMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                waitingOrders.remove(waitingOrder);
+                throw new GroupCommitUnavailableException("Order " + waitingOrder.order().orderId() + " was not created in time");
+            } else if (e.getCause() instanceof GroupCommitUnavailableException groupCommitUnavailableException) {
+                throw groupCommitUnavailableException;
+            }
+            throw new IllegalStateException("Order " + waitingOrder.order().orderId() + " was not created", e.getCause());
+        }
+        if (!result.isCreated()) {
+            throw new OrderController.CreateNewOrderException(result.errors());
+        }
+        return result.order();
+    }
+
+    private void commitGroups() {
+        List<WaitingOrder> group = new ArrayList<>(maxBatchSize);
+        while (running || !waitingOrders.isEmpty()) {
+            try {
+                WaitingOrder first = waitingOrders.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    group.add(first);
+                    collectGroup(group, System.nanoTime() + windowNanos);
+                    group.removeIf(waitingOrder -> waitingOrder.result().isDone());
+                    if (!group.isEmpty()) {
+                        commit(group);
+                    }
+                    group.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(waitingOrder -> waitingOrder.result().completeExceptionally(e));
+                return;
+            }
+        }
+    }
+
+    private void collectGroup(List<WaitingOrder> group, long deadline) throws InterruptedException {
+        waitingOrders.drainTo(group, maxBatchSize - group.size());
+        while (group.size() < maxBatchSize) {
+            long remainingNanos = deadline - System.nanoTime();
+            WaitingOrder next = remainingNanos > 0 ? waitingOrders.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+            waitingOrders.drainTo(group, maxBatchSize - group.size());
+        }
+    }
+
+    private void commit(List<WaitingOrder> group) {
+        batchSizes.record(group.size());
+        try {
+            List<OrderCreationResult> results = queuedOrderCreator.create(group.stream().map(WaitingOrder::order).toList());
+            for (int i = 0; i < group.size(); i++) {
+                if (results.get(i) != null) {
+                    group.get(i).result().complete(results.get(i));
+                }
+            }
+        } finally {
+            for (WaitingOrder waitingOrder : group) {
+                if (!waitingOrder.result().isDone()) {
+                    waitingOrder.result().completeExceptionally(new IllegalStateException("Creation of the order failed"));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        committers.shutdown();
+        if (!committers.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Committers of order groups did not stop in time");
+        }
+        List<WaitingOrder> abandonedOrders = new ArrayList<>();
+        waitingOrders.drainTo(abandonedOrders);
+        abandonedOrders.forEach(waitingOrder -> waitingOrder.result().completeExceptionally(
+                new GroupCommitUnavailableException("Orders are not created anymore")));
+    }
+
+    private record WaitingOrder(QueuedOrder order, CompletableFuture<OrderCreationResult> result) {
+    }
+
+    public static class GroupCommitUnavailableException extends RuntimeException {
+
+        public GroupCommitUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
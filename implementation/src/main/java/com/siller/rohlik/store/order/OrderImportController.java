@@ -0,0 +1,141 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.batch.BatchReader;
+import com.siller.rohlik.store.order.model.OrderImportErrorCode;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderImportResultDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports orders from an NDJSON or JSON array body. The body is parsed incrementally and the orders are created
+ * in chunks, each in its own transaction, with one result line written and flushed per order as soon as its
+ * chunk is done. Invalid or malformed orders and orders of a failing chunk are reported without stopping the
+ * import, except for invalid JSON in an array, see {@link BatchReader}.
+ */
+@RestController
+@Slf4j
+public class OrderImportController {
+
+    static final String IMPORT_URL = "/orders:batch";
+
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Validator validator;
+    private final Integer chunkSize;
+
+    public OrderImportController(
+            OrderService orderService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            Validator validator,
+            @Value("${orderImport.chunkSize}") Integer chunkSize) {
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostMapping(
+            path = IMPORT_URL,
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE}
+    )
+    public void importOrders(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        List<BatchReader.Row<OrderDto>> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        try (BatchReader<OrderDto> rows = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? BatchReader.ofNdjson(objectMapper, body, OrderDto.class)
+                : BatchReader.ofJson(objectMapper, body, OrderDto.class)) {
+            BatchReader.Row<OrderDto> row = rows.next();
+            while (row != null) {
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    index = importChunk(chunk, index, output);
+                }
+                row = rows.next();
+            }
+            importChunk(chunk, index, output);
+        }
+    }
+
+    private int importChunk(List<BatchReader.Row<OrderDto>> chunk, int firstIndex, OutputStream output) throws IOException {
+        if (chunk.isEmpty()) {
+            return firstIndex;
+        }
+        List<OrderImportResultDto> results = new ArrayList<>(chunk.size());
+        List<OrderDto> validOrders = new ArrayList<>(chunk.size());
+        List<OrderImportResultDto> resultsOfValidOrders = new ArrayList<>(chunk.size());
+        int index = firstIndex;
+        for (BatchReader.Row<OrderDto> row : chunk) {
+            OrderImportResultDto result = new OrderImportResultDto().index(index++);
+            results.add(result);
+            if (row.isMalformed()) {
+                result.errorCode(OrderImportErrorCode.MALFORMED_ORDER.name());
+            } else if (validator.validate(row.value()).isEmpty()) {
+                validOrders.add(row.value());
+                resultsOfValidOrders.add(result);
+            } else {
+                result.errorCode(OrderImportErrorCode.INVALID_ORDER.name());
+            }
+        }
+        if (!validOrders.isEmpty()) {
+            importValidOrders(validOrders, resultsOfValidOrders);
+        }
+        for (OrderImportResultDto result : results) {
+            writeResult(output, result);
+        }
+        output.flush();
+        chunk.clear();
+        return index;
+    }
+
+    private void importValidOrders(List<OrderDto> orders, List<OrderImportResultDto> results) {
+        List<OrderCreationResult> creationResults;
+        try {
+            creationResults = orderService.createOrders(orders);
+        } catch (RuntimeException e) {
+            log.warn("Import of a chunk of {} orders failed", orders.size(), e);
+            results.forEach(result -> result.errorCode(OrderImportErrorCode.IMPORT_FAILED.name()));
+            return;
+        }
+        for (int i = 0; i < creationResults.size(); i++) {
+            OrderCreationResult creationResult = creationResults.get(i);
+            if (creationResult.isCreated()) {
+                results.get(i).orderId(creationResult.order().getId());
+            } else {
+                creationResult.errors().forEach(error -> meterRegistry.counter(
+                        OrderController.VALIDATION_ERRORS_METRIC, "code", error.getErrorCode().name()).increment());
+                results.get(i).errors(OrderController.toErrorDtos(creationResult.errors()));
+            }
+        }
+    }
+
+    private void writeResult(OutputStream output, OrderImportResultDto result) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(result));
+        output.write('\n');
+    }
+}
@@ -0,0 +1,210 @@
+package com.siller.rohlik.store.order;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Accepts orders into bounded in-memory queues and creates them asynchronously, many orders per transaction.
+ * There is one queue and one consumer per shard and an order goes to the shard of its lowest product ID, so
+ * orders whose lowest product is the same are created one batch after another. Orders sharing any other product
+ * can be in different shards, whose batches then wait for each other's locks on it.
+ * <p>
+ * Queued orders are lost when the node crashes. Their outcome is answered from memory, rejected orders are
+ * remembered for {@code orderQueue.outcomeRetentionSeconds}.
+ */
+@Component
+@ConditionalOnProperty(name = "orderQueue.enabled", havingValue = "true")
+@Slf4j
+public class OrderQueue {
+
+    static final String QUEUED_ORDERS_METRIC = "store.orders.queue.size";
+    static final String FULL_QUEUE_METRIC = "store.orders.queue.full";
+
+    private static final long POLL_MILLIS = 100;
+
+    private final QueuedOrderCreator queuedOrderCreator;
+    private final MeterRegistry meterRegistry;
+
+    private final int batchSize;
+    private final List<BlockingQueue<QueuedOrder>> shards;
+    private final Semaphore[] shardCapacities;
+    private final Map<String, QueuedOrder> pendingOrders = new ConcurrentHashMap<>();
+    private final Cache<String, Outcome> outcomes;
+    private final ExecutorService consumers;
+    private volatile boolean running = true;
+
+    public OrderQueue(
+            QueuedOrderCreator queuedOrderCreator,
+            MeterRegistry meterRegistry,
+            @Value("${orderQueue.shards}") Integer shards,
+            @Value("${orderQueue.shardCapacity}") Integer shardCapacity,
+            @Value("${orderQueue.batchSize}") Integer batchSize,
+            @Value("${orderQueue.outcomeRetentionSeconds}") Long outcomeRetentionSeconds,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.queuedOrderCreator = queuedOrderCreator;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.shards = new ArrayList<>(shards);
+        this.shardCapacities = new Semaphore[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards.add(new LinkedBlockingQueue<>());
+            this.shardCapacities[i] = new Semaphore(shardCapacity);
+        }
+        this.outcomes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(outcomeRetentionSeconds))
+                .build();
+        this.consumers = Executors.newFixedThreadPool(shards, virtualThreads
+                ? Thread.ofVirtual().name("order-queue-", 0).factory()
+                : Thread.ofPlatform().name("order-queue-", 0).daemon().factory());
+        meterRegistry.gaugeMapSize(QUEUED_ORDERS_METRIC, Tags.empty(), pendingOrders);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int consumedShard = shard;
+            consumers.execute(() -> consume(consumedShard));
+        }
+    }
+
+    /**
+     * Queues the order once the caller's transaction commits.
+     *
+     * @return ID the order will be created with
+     * @throws QueueFullException when the shard of the order has no capacity left
+     */
+    public String accept(OrderDto orderDto) {
+        int shard = shardOf(orderDto);
+        if (!running || !shardCapacities[shard].tryAcquire()) {
+            meterRegistry.counter(FULL_QUEUE_METRIC).increment();
+            throw new QueueFullException();
+        }
+        QueuedOrder queuedOrder = new QueuedOrder(UUID.randomUUID().toString(), orderDto);
+        pendingOrders.put(queuedOrder.orderId(), queuedOrder);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        shards.get(shard).add(queuedOrder);
+                    } else {
+                        pendingOrders.remove(queuedOrder.orderId());
+                        shardCapacities[shard].release();
+                    }
+                }
+            });
+        } else {
+            shards.get(shard).add(queuedOrder);
+        }
+        return queuedOrder.orderId();
+    }
+
+    private int shardOf(OrderDto orderDto) {
+        String lowestProductId = null;
+        for (OrderItemDto line : orderDto.getOrderItems()) {
+            if (line.getProductId() != null && (lowestProductId == null || line.getProductId().compareTo(lowestProductId) < 0)) {
+                lowestProductId = line.getProductId();
+            }
+        }
+        return lowestProductId == null ? 0 : Math.floorMod(lowestProductId.hashCode(), shards.size());
+    }
+
+    /**
+     * @return outcome of an order that is still queued or was not created, empty for created and unknown orders
+     */
+    public Optional<Outcome> findOutcome(String orderId) {
+        if (pendingOrders.containsKey(orderId)) {
+            return Optional.of(Outcome.PENDING);
+        }
+        return Optional.ofNullable(outcomes.getIfPresent(orderId));
+    }
+
+    private void consume(int shard) {
+        BlockingQueue<QueuedOrder> queue = shards.get(shard);
+        List<QueuedOrder> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedOrder first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    create(batch);
+                    shardCapacities[shard].release(batch.size());
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void create(List<QueuedOrder> batch) {
+        List<OrderCreationResult> results = queuedOrderCreator.create(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), results.get(i));
+        }
+    }
+
+    // The outcome is recorded before the order stops being pending, so that its status never looks unknown.
+    private void complete(QueuedOrder queuedOrder, OrderCreationResult result) {
+        if (result == null) {
+            outcomes.put(queuedOrder.orderId(), Outcome.FAILED);
+        } else if (!result.isCreated()) {
+            result.errors().forEach(error -> meterRegistry.counter(
+                    OrderController.VALIDATION_ERRORS_METRIC, "code", error.getErrorCode().name()).increment());
+            outcomes.put(queuedOrder.orderId(), Outcome.rejected(result.errors()));
+        }
+        pendingOrders.remove(queuedOrder.orderId());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        consumers.shutdown();
+        if (!consumers.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("{} queued orders were not created before shutdown", pendingOrders.size());
+        }
+    }
+
+    public record Outcome(Status status, List<CreateNewOrderError> errors) {
+
+        static final Outcome PENDING = new Outcome(Status.PENDING, List.of());
+        static final Outcome FAILED = new Outcome(Status.FAILED, List.of());
+
+        static Outcome rejected(List<CreateNewOrderError> errors) {
+            return new Outcome(Status.REJECTED, errors);
+        }
+
+        public enum Status {
+            PENDING,
+            REJECTED,
+            FAILED
+        }
+    }
+
+    public static class QueueFullException extends RuntimeException {
+
+        public QueueFullException() {
+            super("Queue of orders is full");
+        }
+    }
+}
@@ -1,70 +1,203 @@
 package com.siller.rohlik.store.order;
 
+import com.siller.rohlik.store.concurrency.RetryOnOptimisticLockingFailure;
+import com.siller.rohlik.store.order.event.OrderStateChangedEvent;
 import com.siller.rohlik.store.order.model.ActiveOrderMetadata;
 import com.siller.rohlik.store.order.model.CreateNewOrderError;
 import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderDetail;
 import com.siller.rohlik.store.order.model.OrderItem;
+import com.siller.rohlik.store.order.model.OrderSummary;
 import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
 import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.ProductCatalog;
 import com.siller.rohlik.store.product.ProductService;
-import com.siller.rohlik.store.product.model.Product;
 import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.stock.StockChangedEvent;
+import com.siller.rohlik.store.product.stock.StockReservations;
 import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
+import java.time.Instant;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
     private final ProductService productService;
+    private final ProductCatalog productCatalog;
+    private final StockReservations stockReservations;
 
     private final OrderRepository orderRepository;
     private final ActiveOrderMetadataRepository activeOrderMetadataRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
+    @RetryOnOptimisticLockingFailure
     Order createOrder(OrderDto orderDto) {
-        OrderCreator orderCreator = new OrderCreator(orderDto, productRepository::findById);
+        OrderCreationResult result = tryCreateOrder(orderDto);
+        if (!result.isCreated()) {
+            throw new OrderController.CreateNewOrderException(result.errors());
+        }
+        return result.order();
+    }
+
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    List<OrderCreationResult> createOrders(List<OrderDto> orderDtos) {
+        return createQueuedOrders(orderDtos.stream()
+                .map(orderDto -> new QueuedOrder(UUID.randomUUID().toString(), orderDto))
+                .toList());
+    }
+
+    /**
+     * Creates the orders in one transaction under the IDs they were accepted with.
+     */
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    List<OrderCreationResult> createQueuedOrders(List<QueuedOrder> queuedOrders) {
+        lockProductsOf(queuedOrders.stream().map(QueuedOrder::orderDto).toList());
+        List<OrderCreationResult> results = new ArrayList<>(queuedOrders.size());
+        for (QueuedOrder queuedOrder : queuedOrders) {
+            results.add(tryCreateOrder(queuedOrder.orderId(), queuedOrder.orderDto()));
+        }
+        return results;
+    }
+
+    private void lockProductsOf(List<OrderDto> orderDtos) {
+        SortedSet<String> productIds = new TreeSet<>();
+        for (OrderDto orderDto : orderDtos) {
+            for (OrderItemDto line : orderDto.getOrderItems()) {
+                if (line.getProductId() != null) {
+                    productIds.add(line.getProductId());
+                }
+            }
+        }
+        stockReservations.lock(productIds);
+    }
+
+    private OrderCreationResult tryCreateOrder(OrderDto orderDto) {
+        return tryCreateOrder(UUID.randomUUID().toString(), orderDto);
+    }
+
+    private OrderCreationResult tryCreateOrder(String orderId, OrderDto orderDto) {
+        OrderCreator orderCreator = new OrderCreator(
+                orderId, orderDto, productCatalog::getAll, stockReservations::findAvailableQuantities, productRepository::getReferenceById
+        );
         if (!orderCreator.succesfullyCreatedOrder()) {
-            List<CreateNewOrderError> errors = orderCreator.getErrors();
-            throw new OrderController.CreateNewOrderException(errors);
+            return OrderCreationResult.rejected(orderCreator.getErrors());
         }
 
         Order order = orderCreator.getOrder();
         ActiveOrderMetadata activeOrderMetadata = orderCreator.getActiveOrderMetadata();
 
-        updateProductsInOrder(order);
+        List<CreateNewOrderError> reservationErrors = reserveProductsOfOrder(order);
+        if (!reservationErrors.isEmpty()) {
+            return OrderCreationResult.rejected(reservationErrors);
+        }
         order = orderRepository.save(order);
         activeOrderMetadataRepository.save(activeOrderMetadata);
-        return order;
+        eventPublisher.publishEvent(new OrderStateChangedEvent(
+                order.getId(), null, order.getState(), activeOrderMetadata.getCreatedAt().toInstant()
+        ));
+        return OrderCreationResult.created(order);
     }
 
-    private void updateProductsInOrder(Order order) {
-        List<Product> productsToUpdate = new LinkedList<>();
-        for(OrderItem orderItem : order.getItems()){
-            Product product = orderItem.getProduct();
-            product.reduceQuantityBy(orderItem.getQuantity());
-            productsToUpdate.add(product);
+    // Products are reserved in the order of their IDs, so concurrent orders lock their rows in the same order and
+    // cannot deadlock. Lines reserved before a failing one are given back, so that other orders of the same
+    // transaction can proceed. Errors are reported in the order the products first appear in the basket.
+    private List<CreateNewOrderError> reserveProductsOfOrder(Order order) {
+        Map<String, Integer> quantitiesByProductId = new TreeMap<>();
+        for (OrderItem orderItem : order.getItems()) {
+            quantitiesByProductId.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        List<String> productIds = new ArrayList<>(quantitiesByProductId.keySet());
+        List<Integer> quantities = new ArrayList<>(quantitiesByProductId.values());
+        boolean[] reservedProducts = stockReservations.reserve(order.getId(), productIds, quantities);
+        Set<String> failedProductIds = new HashSet<>();
+        List<String> reservedProductIds = new ArrayList<>();
+        List<Integer> reservedQuantities = new ArrayList<>();
+        for (int i = 0; i < reservedProducts.length; i++) {
+            if (!reservedProducts[i]) {
+                failedProductIds.add(productIds.get(i));
+            } else {
+                reservedProductIds.add(productIds.get(i));
+                reservedQuantities.add(quantities.get(i));
+            }
         }
-        productRepository.saveAll(productsToUpdate);
+        List<CreateNewOrderError> errors = new LinkedList<>();
+        if (!failedProductIds.isEmpty()) {
+            if (!reservedProductIds.isEmpty()) {
+                stockReservations.release(order.getId(), reservedProductIds, reservedQuantities);
+            }
+            for (OrderItem orderItem : order.getItems()) {
+                if (failedProductIds.remove(orderItem.getProduct().getId())) {
+                    errors.add(new CreateNewOrderError(
+                            orderItem.getProduct().getId(), CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK
+                    ));
+                }
+            }
+            return errors;
+        }
+        eventPublisher.publishEvent(new StockChangedEvent(productIds));
+        return errors;
+    }
+
+    public Optional<OrderDetail> findOrderDetail(String orderId) {
+        return OrderDetail.of(orderRepository.findDetailRowsById(orderId));
+    }
+
+    public Optional<Long> findOrderVersion(String orderId) {
+        return orderRepository.findVersionById(orderId);
     }
 
-    public Optional<Order> findById(String orderId) {
-        return orderRepository.findById(orderId);
+    public List<OrderSummary> findOrdersOfCustomer(String customerId, String afterOrderId, int limit) {
+        return orderRepository.findSummariesOfCustomerAfterId(
+                customerId, afterOrderId == null ? "" : afterOrderId, PageRequest.of(0, limit)
+        );
     }
 
-    public void cancelOrder(Order order) {
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    public Optional<Order> cancelOrder(String orderId) {
+        Optional<Order> potentialOrder = orderRepository.findById(orderId);
+        potentialOrder.ifPresent(this::cancelOrder);
+        return potentialOrder;
+    }
+
+    private void cancelOrder(Order order) {
         if(!order.getState().equals(Order.State.CANCELED)) {
+            Order.State previousState = order.getState();
             order.setState(Order.State.CANCELED);
             productService.returnProducts(order);
             activeOrderMetadataRepository.deleteByOrder(order);
             orderRepository.save(order);
+            eventPublisher.publishEvent(new OrderStateChangedEvent(
+                    order.getId(), previousState, order.getState(), Instant.now()
+            ));
+        }
+    }
+
+    @Transactional
+    public void invalidateActiveOrders(Collection<String> orderIds) {
+        List<String> activeOrderIds = orderRepository.lockIdsOfOrdersInState(orderIds, Order.State.ACTIVE);
+        if (!activeOrderIds.isEmpty()) {
+            productService.returnProductsOfActiveOrders(activeOrderIds);
+            orderRepository.changeStateOfOrders(activeOrderIds, Order.State.ACTIVE, Order.State.INVALIDATED);
+        }
+        activeOrderMetadataRepository.deleteByOrderIds(orderIds);
+        Instant invalidatedAt = Instant.now();
+        for (String orderId : activeOrderIds) {
+            eventPublisher.publishEvent(new OrderStateChangedEvent(
+                    orderId, Order.State.ACTIVE, Order.State.INVALIDATED, invalidatedAt
+            ));
         }
     }
 }
@@ -0,0 +1,6 @@
+package com.siller.rohlik.store.order;
+
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+
+record QueuedOrder(String orderId, OrderDto orderDto) {
+}
@@ -0,0 +1,40 @@
+package com.siller.rohlik.store.order;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates orders handed over by other threads in batches, one transaction per batch. When a batch fails, its
+ * orders are created one by one, so that one broken order does not fail the others.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueuedOrderCreator {
+
+    private final OrderService orderService;
+
+    /**
+     * @return result of each order, {@code null} for an order whose creation failed
+     */
+    List<OrderCreationResult> create(List<QueuedOrder> batch) {
+        try {
+            return orderService.createQueuedOrders(batch);
+        } catch (RuntimeException e) {
+            log.warn("Creating a batch of {} orders failed, creating them one by one", batch.size(), e);
+            return batch.stream().map(this::createAlone).toList();
+        }
+    }
+
+    private OrderCreationResult createAlone(QueuedOrder queuedOrder) {
+        try {
+            return orderService.createQueuedOrders(List.of(queuedOrder)).getFirst();
+        } catch (RuntimeException e) {
+            log.error("Creating order {} failed", queuedOrder.orderId(), e);
+            return null;
+        }
+    }
+}
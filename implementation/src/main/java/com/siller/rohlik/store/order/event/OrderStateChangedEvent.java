@@ -0,0 +1,16 @@
+package com.siller.rohlik.store.order.event;
+
+import com.siller.rohlik.store.order.model.Order;
+
+import java.time.Instant;
+
+/**
+ * Published inside the transaction which changed the state of an order. {@code previousState} is {@code null}
+ * for newly created orders.
+ */
+public record OrderStateChangedEvent(String orderId, Order.State previousState, Order.State newState, Instant occurredAt) {
+
+    public boolean isCreation() {
+        return previousState == null;
+    }
+}
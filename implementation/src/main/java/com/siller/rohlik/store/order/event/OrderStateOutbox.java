@@ -0,0 +1,35 @@
+package com.siller.rohlik.store.order.event;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.outbox.Outbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Writes every change of an order's state to the outbox, keyed by the order ID. Downstream systems learn about
+ * orders being created, payed, canceled and invalidated from the relayed messages instead of polling the orders.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStateOutbox {
+
+    public static final String TOPIC = "order-state-changed";
+
+    private final Outbox outbox;
+
+    @EventListener
+    public void onOrderStateChanged(OrderStateChangedEvent event) {
+        outbox.append(TOPIC, event.orderId(), new OrderStateChange(
+                event.orderId(), event.previousState(), event.newState(), event.occurredAt()
+        ));
+    }
+
+    /**
+     * Payload of the messages, {@code previousState} is {@code null} for newly created orders.
+     */
+    public record OrderStateChange(String orderId, Order.State previousState, Order.State newState, Instant occurredAt) {
+    }
+}
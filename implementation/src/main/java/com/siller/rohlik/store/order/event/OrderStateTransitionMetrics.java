@@ -0,0 +1,26 @@
+package com.siller.rohlik.store.order.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class OrderStateTransitionMetrics {
+
+    public static final String TRANSITIONS_METRIC = "store.orders.transitions";
+    private static final String NO_STATE = "NONE";
+
+    private final MeterRegistry meterRegistry;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStateChanged(OrderStateChangedEvent event) {
+        Counter.builder(TRANSITIONS_METRIC)
+                .tag("from", event.isCreation() ? NO_STATE : event.previousState().name())
+                .tag("to", event.newState().name())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,114 @@
+package com.siller.rohlik.store.order.expiry;
+
+import java.util.*;
+
+/**
+ * Hierarchical timing wheel keeping deadlines of keys with a resolution of one tick. Level {@code n} of the wheel
+ * has {@code wheelSize} buckets each spanning {@code wheelSize^n} ticks; entries are moved to lower levels when
+ * time reaches their bucket. Adding, removing and expiring a key is O(1) amortized. Not thread safe.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<List<Entry<K>>>[] levels;
+    private final long[] levelSpans;
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long maxDelayMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        int levelCount = 1;
+        long coveredTicks = wheelSize;
+        while (coveredTicks * tickMillis <= maxDelayMillis && coveredTicks <= Long.MAX_VALUE / wheelSize) {
+            coveredTicks *= wheelSize;
+            levelCount++;
+        }
+        this.levels = new List[levelCount];
+        this.levelSpans = new long[levelCount];
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            levelSpans[level] = span;
+            levels[level] = new ArrayList<>(wheelSize);
+            for (int bucket = 0; bucket < wheelSize; bucket++) {
+                levels[level].add(new ArrayList<>());
+            }
+            span *= wheelSize;
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public void add(K key, long deadlineMillis) {
+        long deadlineTick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        deadlineTicks.put(key, deadlineTick);
+        place(new Entry<>(key, deadlineTick));
+    }
+
+    public void remove(K key) {
+        deadlineTicks.remove(key);
+    }
+
+    public int size() {
+        return deadlineTicks.size();
+    }
+
+    /**
+     * Moves the wheel to the given time and returns keys whose deadline has passed, in order of their deadlines.
+     */
+    public List<K> advanceTo(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = levels.length - 1; level > 0; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    List<Entry<K>> bucket = takeBucket(level, currentTick);
+                    for (Entry<K> entry : bucket) {
+                        if (isLive(entry)) {
+                            place(entry);
+                        }
+                    }
+                }
+            }
+            for (Entry<K> entry : takeBucket(0, currentTick)) {
+                if (isLive(entry)) {
+                    deadlineTicks.remove(entry.key());
+                    expired.add(entry.key());
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void place(Entry<K> entry) {
+        long delay = entry.deadlineTick() - currentTick;
+        int level = 0;
+        while (level < levels.length - 1 && delay >= levelSpans[level + 1]) {
+            level++;
+        }
+        long bucketTick = Math.max(entry.deadlineTick(), currentTick);
+        bucket(level, bucketTick / levelSpans[level] * levelSpans[level]).add(entry);
+    }
+
+    private boolean isLive(Entry<K> entry) {
+        Long deadlineTick = deadlineTicks.get(entry.key());
+        return deadlineTick != null && deadlineTick == entry.deadlineTick();
+    }
+
+    private List<Entry<K>> bucket(int level, long tick) {
+        int index = (int) ((tick / levelSpans[level]) % wheelSize);
+        return levels[level].get(index);
+    }
+
+    private List<Entry<K>> takeBucket(int level, long tick) {
+        int index = (int) ((tick / levelSpans[level]) % wheelSize);
+        List<Entry<K>> bucket = levels[level].get(index);
+        levels[level].set(index, new ArrayList<>());
+        return bucket;
+    }
+
+    private record Entry<K>(K key, long deadlineTick) {
+    }
+}
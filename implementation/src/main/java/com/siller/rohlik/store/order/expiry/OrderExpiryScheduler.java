@@ -0,0 +1,121 @@
+package com.siller.rohlik.store.order.expiry;
+
+import com.siller.rohlik.store.order.OrderService;
+import com.siller.rohlik.store.order.event.OrderStateChangedEvent;
+import com.siller.rohlik.store.order.model.ActiveOrderReference;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidates active orders close to their deadline without polling the database. Orders are registered when
+ * they are created, removed when they leave the ACTIVE state and the wheel is rebuilt from
+ * {@code ActiveOrderMetadata} on startup. The cron driven {@code InactiveOrdersProcessor} stays as a safety net
+ * for orders created by other nodes or lost on a crash.
+ */
+@Component
+@ConditionalOnProperty(name = "inactiveOrdersProcessor.timingWheel.enabled", havingValue = "true")
+@Slf4j
+public class OrderExpiryScheduler {
+
+    private final OrderService orderService;
+    private final ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    private final long activeOrderLifetimeMillis;
+    private final long tickMillis;
+    private final int pageSize;
+    private final HierarchicalTimingWheel<String> timingWheel;
+    private final ScheduledExecutorService ticker;
+
+    public OrderExpiryScheduler(
+            OrderService orderService,
+            ActiveOrderMetadataRepository activeOrderMetadataRepository,
+            @Value("${activePaymentsShouldBeInvalidatedAfterSeconds}") Integer activePaymentsShouldBeInvalidatedAfterSeconds,
+            @Value("${inactiveOrdersProcessor.timingWheel.tickMillis}") Long tickMillis,
+            @Value("${inactiveOrdersProcessor.timingWheel.wheelSize}") Integer wheelSize,
+            @Value("${inactiveOrdersProcessor.pageSize}") Integer pageSize,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.orderService = orderService;
+        this.activeOrderMetadataRepository = activeOrderMetadataRepository;
+        this.activeOrderLifetimeMillis = 1000L * activePaymentsShouldBeInvalidatedAfterSeconds;
+        this.tickMillis = tickMillis;
+        this.pageSize = pageSize;
+        this.timingWheel = new HierarchicalTimingWheel<>(
+                tickMillis, wheelSize, activeOrderLifetimeMillis, System.currentTimeMillis()
+        );
+        this.ticker = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("order-expiry-ticker").factory()
+                : Thread.ofPlatform().name("order-expiry-ticker").daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildFromActiveOrders();
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStateChanged(OrderStateChangedEvent event) {
+        if (event.isCreation()) {
+            register(event.orderId(), event.occurredAt().toEpochMilli());
+        } else {
+            synchronized (timingWheel) {
+                timingWheel.remove(event.orderId());
+            }
+        }
+    }
+
+    private void rebuildFromActiveOrders() {
+        Long lastSeenId = Long.MIN_VALUE;
+        List<ActiveOrderReference> page;
+        do {
+            page = activeOrderMetadataRepository.findAfterId(lastSeenId, PageRequest.of(0, pageSize));
+            for (ActiveOrderReference activeOrder : page) {
+                register(activeOrder.getOrderId(), activeOrder.getCreatedAt().getTime());
+            }
+            if (!page.isEmpty()) {
+                lastSeenId = page.getLast().getId();
+            }
+        } while (page.size() == pageSize);
+        log.info("Order expiry timing wheel rebuilt with {} active orders", timingWheel.size());
+    }
+
+    private void register(String orderId, long createdAtMillis) {
+        synchronized (timingWheel) {
+            timingWheel.add(orderId, createdAtMillis + activeOrderLifetimeMillis);
+        }
+    }
+
+    private void tick() {
+        try {
+            List<String> expiredOrderIds;
+            synchronized (timingWheel) {
+                expiredOrderIds = timingWheel.advanceTo(System.currentTimeMillis());
+            }
+            for (int from = 0; from < expiredOrderIds.size(); from += pageSize) {
+                List<String> page = expiredOrderIds.subList(from, Math.min(expiredOrderIds.size(), from + pageSize));
+                orderService.invalidateActiveOrders(page);
+                log.debug("Invalidated expired orders: {}", page);
+            }
+        } catch (RuntimeException e) {
+            log.error("Invalidation of expired orders failed, they are left to the periodic sweep", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
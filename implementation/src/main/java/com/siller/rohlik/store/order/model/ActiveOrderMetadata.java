@@ -2,8 +2,10 @@ package com.siller.rohlik.store.order.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -14,7 +16,8 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 public class ActiveOrderMetadata {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "active_order_metadata_seq")
+    @SequenceGenerator(name = "active_order_metadata_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne
@@ -22,6 +25,10 @@ public class ActiveOrderMetadata {
 
     private Timestamp createdAt;
 
+    private String claimedBy;
+
+    private Timestamp claimedUntil;
+
     public ActiveOrderMetadata(Order order, Timestamp createdAt) {
         this.order = order;
         this.createdAt = createdAt;
@@ -0,0 +1,12 @@
+package com.siller.rohlik.store.order.model;
+
+import java.sql.Timestamp;
+
+public interface ActiveOrderReference {
+
+    Long getId();
+
+    String getOrderId();
+
+    Timestamp getCreatedAt();
+}
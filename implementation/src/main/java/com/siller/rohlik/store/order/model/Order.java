@@ -3,17 +3,20 @@ package com.siller.rohlik.store.order.model;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Data
-@Table(name = "store_order")
+@Table(name = "store_order", indexes = @Index(name = "store_order_customer_idx", columnList = "customer_id, id"))
 public class Order {
+    // Assigned when the order is validated, so that a queued order can be referred to before it is stored.
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
+    private String customerId;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
@@ -23,6 +26,11 @@ public class Order {
 
     private State state;
 
+    private BigDecimal totalPrice;
+
+    @Version
+    private Long version;
+
     public enum State {
         ACTIVE,
         CANCELED,
@@ -0,0 +1,29 @@
+package com.siller.rohlik.store.order.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public record OrderDetail(
+        String id, String customerId, Order.State state, BigDecimal totalPrice, Long version, List<Item> items) {
+
+    public record Item(String productId, String productName, Integer quantity, BigDecimal unitPrice) {
+    }
+
+    public static Optional<OrderDetail> of(List<OrderDetailRow> rows) {
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Item> items = new ArrayList<>(rows.size());
+        for (OrderDetailRow row : rows) {
+            if (row.productId() != null) {
+                items.add(new Item(row.productId(), row.productName(), row.quantity(), row.unitPrice()));
+            }
+        }
+        OrderDetailRow order = rows.getFirst();
+        return Optional.of(new OrderDetail(
+                order.orderId(), order.customerId(), order.state(), order.totalPrice(), order.version(), items
+        ));
+    }
+}
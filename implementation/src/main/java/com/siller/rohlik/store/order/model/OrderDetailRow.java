@@ -0,0 +1,12 @@
+package com.siller.rohlik.store.order.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One item of an order joined with its order and product, an order without items yields a single row with
+ * empty item columns.
+ */
+public record OrderDetailRow(
+        String orderId, String customerId, Order.State state, BigDecimal totalPrice, Long version,
+        String productId, String productName, Integer quantity, BigDecimal unitPrice) {
+}
@@ -0,0 +1,7 @@
+package com.siller.rohlik.store.order.model;
+
+public enum OrderImportErrorCode {
+    INVALID_ORDER,
+    MALFORMED_ORDER,
+    IMPORT_FAILED
+}
@@ -4,12 +4,15 @@ import com.siller.rohlik.store.product.model.Product;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Entity
 @Data
 public class OrderItem {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -17,6 +20,8 @@ public class OrderItem {
 
     private Integer quantity;
 
+    private BigDecimal unitPrice;
+
     @ManyToOne
     @JoinColumn(name="order_id", nullable=false)
     private Order order;
@@ -0,0 +1,6 @@
+package com.siller.rohlik.store.order.model;
+
+import java.math.BigDecimal;
+
+public record OrderSummary(String id, Order.State state, BigDecimal totalPrice) {
+}
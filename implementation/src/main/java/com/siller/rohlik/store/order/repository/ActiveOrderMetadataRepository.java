@@ -1,15 +1,48 @@
 package com.siller.rohlik.store.order.repository;
 
 import com.siller.rohlik.store.order.model.ActiveOrderMetadata;
+import com.siller.rohlik.store.order.model.ActiveOrderReference;
 import com.siller.rohlik.store.order.model.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 public interface ActiveOrderMetadataRepository extends JpaRepository<ActiveOrderMetadata, Long> {
 
     void deleteByOrder(Order order);
 
-    List<ActiveOrderMetadata> findAllByCreatedAtBefore(Timestamp timestamp);
+    @Query("""
+            select m.id as id, m.order.id as orderId, m.createdAt as createdAt from ActiveOrderMetadata m
+            where m.id > :afterId
+            order by m.id""")
+    List<ActiveOrderReference> findAfterId(Long afterId, Pageable pageable);
+
+    @Query("""
+            select m.id as id, m.order.id as orderId, m.createdAt as createdAt from ActiveOrderMetadata m
+            where m.createdAt < :createdBefore and m.id > :afterId
+            and (m.claimedUntil is null or m.claimedUntil < :now)
+            order by m.id""")
+    List<ActiveOrderReference> findUnclaimedCreatedBeforeAfterId(
+            Timestamp createdBefore, Long afterId, Timestamp now, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update ActiveOrderMetadata m set m.claimedBy = :claimedBy, m.claimedUntil = :claimedUntil
+            where m.id in :ids and (m.claimedUntil is null or m.claimedUntil < :now)""")
+    int claim(Collection<Long> ids, String claimedBy, Timestamp claimedUntil, Timestamp now);
+
+    @Query("""
+            select m.id as id, m.order.id as orderId, m.createdAt as createdAt from ActiveOrderMetadata m
+            where m.id in :ids and m.claimedBy = :claimedBy and m.claimedUntil = :claimedUntil
+            order by m.id""")
+    List<ActiveOrderReference> findClaimed(Collection<Long> ids, String claimedBy, Timestamp claimedUntil);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from ActiveOrderMetadata m where m.order.id in :orderIds")
+    int deleteByOrderIds(Collection<String> orderIds);
 }
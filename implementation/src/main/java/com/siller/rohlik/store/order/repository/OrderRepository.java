@@ -1,7 +1,45 @@
 package com.siller.rohlik.store.order.repository;
 
 import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderDetailRow;
+import com.siller.rohlik.store.order.model.OrderSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, String> {
+
+    @Query("""
+            select new com.siller.rohlik.store.order.model.OrderDetailRow(
+                o.id, o.customerId, o.state, o.totalPrice, o.version, p.id, p.name, i.quantity, i.unitPrice)
+            from Order o left join o.items i left join i.product p
+            where o.id = :orderId
+            order by i.id""")
+    List<OrderDetailRow> findDetailRowsById(String orderId);
+
+    @Query("select o.version from Order o where o.id = :orderId")
+    Optional<Long> findVersionById(String orderId);
+
+    @Query("""
+            select new com.siller.rohlik.store.order.model.OrderSummary(o.id, o.state, o.totalPrice) from Order o
+            where o.customerId = :customerId and o.id > :afterId
+            order by o.id""")
+    List<OrderSummary> findSummariesOfCustomerAfterId(String customerId, String afterId, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o.id from Order o where o.id in :orderIds and o.state = :state")
+    List<String> lockIdsOfOrdersInState(Collection<String> orderIds, Order.State state);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Order o set o.state = :newState, o.version = o.version + 1
+            where o.id in :orderIds and o.state = :currentState""")
+    int changeStateOfOrders(Collection<String> orderIds, Order.State currentState, Order.State newState);
 }
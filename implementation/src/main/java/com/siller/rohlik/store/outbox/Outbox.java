@@ -0,0 +1,95 @@
+package com.siller.rohlik.store.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+import com.siller.rohlik.store.outbox.repository.OutboxEntryRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records messages for downstream systems in the {@code OutboxEntry} table, in the same transaction as the change
+ * they describe. The {@code OutboxRelay} publishes them to the configured {@code OutboxSink}; entries are kept
+ * for {@code outbox.retentionSeconds} regardless of whether they were relayed.
+ */
+@Component
+@Slf4j
+public class Outbox {
+
+    private final OutboxEntryRepository outboxEntryRepository;
+    private final ObjectMapper objectMapper;
+    private final long retentionMillis;
+
+    public Outbox(
+            OutboxEntryRepository outboxEntryRepository,
+            ObjectMapper objectMapper,
+            @Value("${outbox.retentionSeconds}") Long retentionSeconds) {
+        this.outboxEntryRepository = outboxEntryRepository;
+        this.objectMapper = objectMapper;
+        this.retentionMillis = 1000L * retentionSeconds;
+    }
+
+    /**
+     * Adds a message to the current transaction. The messages of a transaction are inserted in one batch just
+     * before it commits.
+     */
+    public void append(String topic, String key, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Outbox messages can only be appended in a transaction");
+        }
+        PendingEntries pendingEntries = (PendingEntries) TransactionSynchronizationManager.getResource(this);
+        if (pendingEntries == null) {
+            pendingEntries = new PendingEntries();
+            TransactionSynchronizationManager.bindResource(this, pendingEntries);
+            TransactionSynchronizationManager.registerSynchronization(pendingEntries);
+        }
+        OutboxEntry entry = new OutboxEntry();
+        entry.setTopic(topic);
+        entry.setMessageKey(key);
+        entry.setPayload(toJson(payload));
+        pendingEntries.entries.add(entry);
+    }
+
+    @Scheduled(cron = "${outbox.purgeCronExpression}")
+    @Transactional
+    public void purgeExpiredEntries() {
+        int purged = outboxEntryRepository.deleteCreatedBefore(new Timestamp(System.currentTimeMillis() - retentionMillis));
+        log.debug("Purged {} expired outbox entries", purged);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox message cannot be written", e);
+        }
+    }
+
+    private class PendingEntries implements TransactionSynchronization {
+
+        private final List<OutboxEntry> entries = new ArrayList<>();
+
+        // The creation time is taken as late as possible, the relay compares it to decide whether a missing ID
+        // may still be committed.
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+            entries.forEach(entry -> entry.setCreatedAt(createdAt));
+            outboxEntryRepository.append(entries);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(Outbox.this);
+        }
+    }
+}
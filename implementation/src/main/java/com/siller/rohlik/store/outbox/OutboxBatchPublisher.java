@@ -0,0 +1,151 @@
+package com.siller.rohlik.store.outbox;
+
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+import com.siller.rohlik.store.outbox.model.OutboxGap;
+import com.siller.rohlik.store.outbox.model.OutboxOffset;
+import com.siller.rohlik.store.outbox.repository.OutboxEntryRepository;
+import com.siller.rohlik.store.outbox.repository.OutboxGapRepository;
+import com.siller.rohlik.store.outbox.repository.OutboxOffsetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Slf4j
+public class OutboxBatchPublisher {
+
+    static final String PUBLISHED_METRIC = "store.outbox.published";
+    static final String SKIPPED_GAPS_METRIC = "store.outbox.gaps.skipped";
+    static final String LATE_ENTRIES_METRIC = "store.outbox.gaps.late";
+    static final String ABANDONED_GAPS_METRIC = "store.outbox.gaps.abandoned";
+
+    private final OutboxEntryRepository outboxEntryRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final OutboxGapRepository outboxGapRepository;
+    private final OutboxSink outboxSink;
+    private final long gapTimeoutMillis;
+    private final long lateEntryTimeoutMillis;
+    private final Counter publishedMessages;
+    private final Counter skippedGaps;
+    private final Counter lateEntries;
+    private final Counter abandonedGaps;
+
+    public OutboxBatchPublisher(
+            OutboxEntryRepository outboxEntryRepository,
+            OutboxOffsetRepository outboxOffsetRepository,
+            OutboxGapRepository outboxGapRepository,
+            OutboxSink outboxSink,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.relay.gapTimeoutMillis}") Long gapTimeoutMillis,
+            @Value("${outbox.relay.lateEntryTimeoutMillis}") Long lateEntryTimeoutMillis) {
+        this.outboxEntryRepository = outboxEntryRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.outboxGapRepository = outboxGapRepository;
+        this.outboxSink = outboxSink;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.lateEntryTimeoutMillis = lateEntryTimeoutMillis;
+        this.publishedMessages = counter(PUBLISHED_METRIC, meterRegistry);
+        this.skippedGaps = counter(SKIPPED_GAPS_METRIC, meterRegistry);
+        this.lateEntries = counter(LATE_ENTRIES_METRIC, meterRegistry);
+        this.abandonedGaps = counter(ABANDONED_GAPS_METRIC, meterRegistry);
+    }
+
+    private Counter counter(String name, MeterRegistry meterRegistry) {
+        return Counter.builder(name)
+                .tag("sink", outboxSink.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes the entries committed late under IDs skipped before, then the entries following the offset of the
+     * sink, and moves the offset past them. The offset row is locked meanwhile, so only one node relays to a sink
+     * at a time.
+     *
+     * @return number of entries published
+     */
+    @Transactional
+    public int publishPending(int batchSize) {
+        outboxOffsetRepository.createIfAbsent(outboxSink.name());
+        OutboxOffset offset = outboxOffsetRepository.lockBySink(outboxSink.name()).orElseThrow();
+        int published = publishLateEntries(batchSize);
+        List<OutboxEntry> entries = outboxEntryRepository.findAfterId(offset.getLastEntryId(), PageRequest.of(0, batchSize));
+        int publishable = countPublishable(
+                entries, offset.getLastEntryId(), new Timestamp(System.currentTimeMillis() - gapTimeoutMillis)
+        );
+        if (publishable == 0) {
+            return published;
+        }
+        List<OutboxEntry> publishedEntries = entries.subList(0, publishable);
+        recordGaps(offset.getLastEntryId(), publishedEntries);
+        outboxSink.publish(publishedEntries.stream().map(OutboxEntry::toMessage).toList());
+        offset.setLastEntryId(publishedEntries.getLast().getId());
+        publishedMessages.increment(publishable);
+        return published + publishable;
+    }
+
+    // IDs are taken on insert but become visible on commit, so a missing ID may belong to a transaction which is
+    // still committing. The relay waits for it until the entry after the gap is older than the gap timeout.
+    static int countPublishable(List<OutboxEntry> entries, long lastEntryId, Timestamp gapDeadline) {
+        long expectedId = lastEntryId + 1;
+        for (int i = 0; i < entries.size(); i++) {
+            OutboxEntry entry = entries.get(i);
+            if (entry.getId() != expectedId && entry.getCreatedAt().after(gapDeadline)) {
+                return i;
+            }
+            expectedId = entry.getId() + 1;
+        }
+        return entries.size();
+    }
+
+    // Most skipped IDs belong to rolled back transactions and never get an entry, the others are relayed late by
+    // publishLateEntries. The first relay of a sink starts at the oldest entry kept without recording the IDs before.
+    private void recordGaps(long lastEntryId, List<OutboxEntry> publishedEntries) {
+        if (lastEntryId == 0) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<OutboxGap> gaps = new ArrayList<>();
+        long expectedId = lastEntryId + 1;
+        for (OutboxEntry entry : publishedEntries) {
+            for (long id = expectedId; id < entry.getId(); id++) {
+                gaps.add(new OutboxGap(outboxSink.name(), id, now));
+            }
+            expectedId = entry.getId() + 1;
+        }
+        if (gaps.isEmpty()) {
+            return;
+        }
+        outboxGapRepository.saveAll(gaps);
+        skippedGaps.increment(gaps.size());
+        log.info("Relay to {} skipped {} missing outbox IDs from {} to {}, entries committed under them later are relayed out of order",
+                outboxSink.name(), gaps.size(), gaps.getFirst().getEntryId(), gaps.getLast().getEntryId());
+    }
+
+    private int publishLateEntries(int batchSize) {
+        int abandoned = outboxGapRepository.deleteSkippedBefore(
+                outboxSink.name(), new Timestamp(System.currentTimeMillis() - lateEntryTimeoutMillis)
+        );
+        if (abandoned > 0) {
+            abandonedGaps.increment(abandoned);
+            log.info("Relay to {} stopped waiting for entries under {} skipped outbox IDs", outboxSink.name(), abandoned);
+        }
+        List<OutboxEntry> entries = outboxEntryRepository.findSkippedBy(outboxSink.name(), PageRequest.of(0, batchSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        outboxSink.publish(entries.stream().map(OutboxEntry::toMessage).toList());
+        outboxGapRepository.deleteBySinkAndEntryIds(outboxSink.name(), entries.stream().map(OutboxEntry::getId).toList());
+        log.warn("Relay to {} published {} outbox entries committed after their IDs were skipped", outboxSink.name(), entries.size());
+        lateEntries.increment(entries.size());
+        publishedMessages.increment(entries.size());
+        return entries.size();
+    }
+}
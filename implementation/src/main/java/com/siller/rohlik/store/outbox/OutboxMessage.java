@@ -0,0 +1,12 @@
+package com.siller.rohlik.store.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * Message relayed from the outbox. {@code id} grows with every message, so consumers can use it to skip
+ * messages delivered again.
+ */
+public record OutboxMessage(Long id, String topic, String key, @JsonRawValue String payload, Instant createdAt) {
+}
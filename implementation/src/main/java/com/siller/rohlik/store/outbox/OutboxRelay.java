@@ -0,0 +1,69 @@
+package com.siller.rohlik.store.outbox;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxBatchPublisher outboxBatchPublisher;
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService relay;
+
+    public OutboxRelay(
+            OutboxBatchPublisher outboxBatchPublisher,
+            @Value("${outbox.relay.enabled}") boolean enabled,
+            @Value("${outbox.relay.intervalMillis}") Long intervalMillis,
+            @Value("${outbox.relay.batchSize}") Integer batchSize,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.outboxBatchPublisher = outboxBatchPublisher;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.relay = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("outbox-relay").factory()
+                : Thread.ofPlatform().name("outbox-relay").daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        relay.scheduleWithFixedDelay(this::relay, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    int relay() {
+        int published = 0;
+        try {
+            int batch;
+            do {
+                batch = outboxBatchPublisher.publishPending(batchSize);
+                published += batch;
+            } while (batch >= batchSize);
+        } catch (RuntimeException e) {
+            log.error("Relaying outbox entries failed, they are retried with the next relay", e);
+        }
+        return published;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        relay.shutdown();
+        if (enabled && relay.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS)) {
+            relay();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.siller.rohlik.store.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of the messages relayed from the outbox, selected by {@code outbox.sink}.
+ */
+public interface OutboxSink {
+
+    /**
+     * Name under which the offset of the sink is stored.
+     */
+    String name();
+
+    /**
+     * Publishes the messages in the order of their IDs. Messages are delivered at least once: if publishing
+     * throws or the offset cannot be stored afterwards, they are published again by the next relay. A message
+     * committed after the relay moved past its ID is published later and out of order, as long as it commits
+     * within {@code outbox.relay.lateEntryTimeoutMillis} after its ID was skipped.
+     */
+    void publish(List<OutboxMessage> messages);
+}
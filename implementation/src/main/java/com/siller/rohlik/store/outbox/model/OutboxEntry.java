@@ -0,0 +1,30 @@
+package com.siller.rohlik.store.outbox.model;
+
+import com.siller.rohlik.store.outbox.OutboxMessage;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+@Entity
+@Data
+@Table(indexes = @Index(name = "outbox_entry_created_at_idx", columnList = "created_at"))
+public class OutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String topic;
+
+    private String messageKey;
+
+    @Column(length = 1024)
+    private String payload;
+
+    private Timestamp createdAt;
+
+    public OutboxMessage toMessage() {
+        return new OutboxMessage(id, topic, messageKey, payload, createdAt.toInstant());
+    }
+}
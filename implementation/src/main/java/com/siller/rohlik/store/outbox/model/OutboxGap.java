@@ -0,0 +1,57 @@
+package com.siller.rohlik.store.outbox.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * ID the relay to a sink moved past without an entry committed under it. An entry committed under it later is
+ * still relayed, until {@code outbox.relay.lateEntryTimeoutMillis} after the ID was skipped.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@IdClass(OutboxGap.Key.class)
+public class OutboxGap implements Persistable<OutboxGap.Key> {
+
+    @Id
+    private String sink;
+
+    @Id
+    private Long entryId;
+
+    private Timestamp skippedAt;
+
+    public OutboxGap(String sink, Long entryId, Timestamp skippedAt) {
+        this.sink = sink;
+        this.entryId = entryId;
+        this.skippedAt = skippedAt;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(sink, entryId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String sink;
+
+        private Long entryId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.siller.rohlik.store.outbox.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ID of the last outbox entry relayed to a sink.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxOffset {
+
+    @Id
+    private String sink;
+
+    private Long lastEntryId;
+}
@@ -0,0 +1,10 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+
+import java.util.List;
+
+public interface OutboxAppends {
+
+    void append(List<OutboxEntry> entries);
+}
@@ -0,0 +1,25 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class OutboxAppendsImpl implements OutboxAppends {
+
+    private static final String APPEND = "insert into outbox_entry (topic, message_key, payload, created_at) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(List<OutboxEntry> entries) {
+        List<Object[]> parameters = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            parameters.add(new Object[]{entry.getTopic(), entry.getMessageKey(), entry.getPayload(), entry.getCreatedAt()});
+        }
+        jdbcTemplate.batchUpdate(APPEND, parameters);
+    }
+}
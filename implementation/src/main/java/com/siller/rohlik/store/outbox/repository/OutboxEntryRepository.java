@@ -0,0 +1,26 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface OutboxEntryRepository extends JpaRepository<OutboxEntry, Long>, OutboxAppends {
+
+    @Query("select e from OutboxEntry e where e.id > :afterId order by e.id")
+    List<OutboxEntry> findAfterId(Long afterId, Pageable pageable);
+
+    @Query("""
+            select e from OutboxEntry e
+            where e.id in (select g.entryId from OutboxGap g where g.sink = :sink)
+            order by e.id""")
+    List<OutboxEntry> findSkippedBy(String sink, Pageable pageable);
+
+    @Modifying
+    @Query("delete from OutboxEntry e where e.createdAt < :createdBefore")
+    int deleteCreatedBefore(Timestamp createdBefore);
+}
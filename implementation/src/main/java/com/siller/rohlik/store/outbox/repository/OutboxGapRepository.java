@@ -0,0 +1,20 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import com.siller.rohlik.store.outbox.model.OutboxGap;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface OutboxGapRepository extends JpaRepository<OutboxGap, OutboxGap.Key> {
+
+    @Modifying
+    @Query("delete from OutboxGap g where g.sink = :sink and g.entryId in :entryIds")
+    int deleteBySinkAndEntryIds(String sink, List<Long> entryIds);
+
+    @Modifying
+    @Query("delete from OutboxGap g where g.sink = :sink and g.skippedAt < :skippedBefore")
+    int deleteSkippedBefore(String sink, Timestamp skippedBefore);
+}
@@ -0,0 +1,16 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import com.siller.rohlik.store.outbox.model.OutboxOffset;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String>, OutboxOffsetUpdates {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from OutboxOffset o where o.sink = :sink")
+    Optional<OutboxOffset> lockBySink(String sink);
+}
@@ -0,0 +1,6 @@
+package com.siller.rohlik.store.outbox.repository;
+
+public interface OutboxOffsetUpdates {
+
+    void createIfAbsent(String sink);
+}
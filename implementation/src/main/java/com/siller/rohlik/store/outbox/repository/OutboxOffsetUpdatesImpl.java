@@ -0,0 +1,26 @@
+package com.siller.rohlik.store.outbox.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+class OutboxOffsetUpdatesImpl implements OutboxOffsetUpdates {
+
+    private static final String CREATE_IF_ABSENT = """
+            insert into outbox_offset (sink, last_entry_id)
+            select ?, 0 where not exists (select 1 from outbox_offset where sink = ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Relays of several nodes may start on an empty table at once. The loser fails on the primary key and locks the
+    // offset of the winner, H2 keeps its transaction going.
+    @Override
+    public void createIfAbsent(String sink) {
+        try {
+            jdbcTemplate.update(CREATE_IF_ABSENT, sink, sink);
+        } catch (DuplicateKeyException e) {
+            // created by a concurrent relay
+        }
+    }
+}
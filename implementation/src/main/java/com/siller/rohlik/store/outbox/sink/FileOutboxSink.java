@@ -0,0 +1,69 @@
+package com.siller.rohlik.store.outbox.sink;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.outbox.OutboxMessage;
+import com.siller.rohlik.store.outbox.OutboxSink;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Appends relayed messages to {@code outbox.file.path} as NDJSON, one line per message. A batch is forced to the
+ * disk before the offset moves past it.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel file;
+
+    public FileOutboxSink(ObjectMapper objectMapper, @Value("${outbox.file.path}") Path path) throws IOException {
+        this.objectMapper = objectMapper;
+        this.file = FileChannel.open(path, CREATE, WRITE, APPEND);
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (OutboxMessage message : messages) {
+                lines.write(objectMapper.writeValueAsBytes(message));
+                lines.write(LINE_SEPARATOR);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(false);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox message cannot be written", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        file.close();
+    }
+}
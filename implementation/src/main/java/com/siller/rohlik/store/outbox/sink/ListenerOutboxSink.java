@@ -0,0 +1,32 @@
+package com.siller.rohlik.store.outbox.sink;
+
+import com.siller.rohlik.store.outbox.OutboxMessage;
+import com.siller.rohlik.store.outbox.OutboxSink;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes relayed messages as {@code OutboxMessage} application events. Listeners run in the relay's
+ * transaction, a failing listener makes the batch be relayed again.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "listener", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ListenerOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "listener";
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(eventPublisher::publishEvent);
+    }
+}
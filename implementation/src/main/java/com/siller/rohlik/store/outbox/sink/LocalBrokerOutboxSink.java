@@ -0,0 +1,75 @@
+package com.siller.rohlik.store.outbox.sink;
+
+import com.siller.rohlik.store.outbox.OutboxMessage;
+import com.siller.rohlik.store.outbox.OutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Stands in for a message broker adapter in development and tests. Every topic is an in-memory log of its last
+ * {@code outbox.broker.retainedMessagesPerTopic} messages, which consumers read from offsets they keep
+ * themselves. An adapter of a real broker implements {@code OutboxSink} the same way.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "broker")
+public class LocalBrokerOutboxSink implements OutboxSink {
+
+    private final int retainedMessagesPerTopic;
+    private final Map<String, TopicLog> topics = new HashMap<>();
+
+    public LocalBrokerOutboxSink(@Value("${outbox.broker.retainedMessagesPerTopic}") Integer retainedMessagesPerTopic) {
+        this.retainedMessagesPerTopic = retainedMessagesPerTopic;
+    }
+
+    @Override
+    public String name() {
+        return "broker";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) {
+        for (OutboxMessage message : messages) {
+            TopicLog topic = topics.computeIfAbsent(message.topic(), name -> new TopicLog());
+            topic.messages.addLast(message);
+            if (topic.messages.size() > retainedMessagesPerTopic) {
+                topic.messages.removeFirst();
+                topic.firstOffset++;
+            }
+        }
+    }
+
+    /**
+     * Reads messages of a topic starting at an offset. Messages which are no longer retained are skipped.
+     */
+    public synchronized List<OutboxMessage> read(String topic, long fromOffset, int maxMessages) {
+        TopicLog topicLog = topics.get(topic);
+        if (topicLog == null) {
+            return List.of();
+        }
+        List<OutboxMessage> messages = new ArrayList<>();
+        Iterator<OutboxMessage> retained = topicLog.messages.iterator();
+        for (long offset = topicLog.firstOffset; retained.hasNext() && messages.size() < maxMessages; offset++) {
+            OutboxMessage message = retained.next();
+            if (offset >= fromOffset) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Offset which the next message published to the topic gets.
+     */
+    public synchronized long endOffset(String topic) {
+        TopicLog topicLog = topics.get(topic);
+        return topicLog == null ? 0 : topicLog.firstOffset + topicLog.messages.size();
+    }
+
+    private static class TopicLog {
+        private final Deque<OutboxMessage> messages = new ArrayDeque<>();
+        private long firstOffset;
+    }
+}
@@ -0,0 +1,54 @@
+package com.siller.rohlik.store.payment;
+
+import com.siller.rohlik.store.concurrency.RetryOnOptimisticLockingFailure;
+import com.siller.rohlik.store.order.event.OrderStateChangedEvent;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.payment.model.PaymentErrorCode;
+import com.siller.rohlik.store.product.stock.StockReservations;
+import com.siller.rohlik.store.rest.model.order.PaymentDto;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class PaymentService {
+
+    private final OrderRepository orderRepository;
+    private final ActiveOrderMetadataRepository activeOrderMetadataRepository;
+    private final StockReservations stockReservations;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    public Optional<Order> payOrder(String orderId, PaymentDto paymentDto) {
+        Optional<Order> potentialOrder = orderRepository.findById(orderId);
+        if (potentialOrder.isPresent()) {
+            Order order = potentialOrder.get();
+            if(order.getState().equals(Order.State.CANCELED)){
+                throw new PaymentController.PaymentErrorException(PaymentErrorCode.CANNOT_PAY_CANCELED_ORDER);
+            }
+            if(order.getState().equals(Order.State.PAYED)){
+                throw new PaymentController.PaymentErrorException(PaymentErrorCode.ALREADY_PAYED);
+            }
+            if(paymentDto.getAmount() == null || order.getTotalPrice().compareTo(paymentDto.getAmount()) != 0){
+                throw new PaymentController.PaymentErrorException(PaymentErrorCode.WRONG_AMOUNT);
+            }
+            Order.State previousState = order.getState();
+            order.setState(Order.State.PAYED);
+            activeOrderMetadataRepository.deleteByOrder(order);
+            orderRepository.save(order);
+            stockReservations.settle(order.getId());
+            eventPublisher.publishEvent(new OrderStateChangedEvent(
+                    order.getId(), previousState, order.getState(), Instant.now()
+            ));
+        }
+        return potentialOrder;
+    }
+}
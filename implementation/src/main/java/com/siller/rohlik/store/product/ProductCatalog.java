@@ -0,0 +1,93 @@
+package com.siller.rohlik.store.product;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.siller.rohlik.store.product.model.CatalogProduct;
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-through cache of the product data needed to validate and price an order. Stock quantity is deliberately
+ * not cached, it is checked when the products are reserved.
+ */
+@Component
+public class ProductCatalog {
+
+    static final String CACHE_NAME = "productCatalog";
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final LoadingCache<String, CatalogProduct> cache;
+
+    public ProductCatalog(
+            ProductRepository productRepository,
+            MeterRegistry meterRegistry,
+            @Value("${productCatalog.cache.maximumSize}") Long maximumSize,
+            @Value("${productCatalog.cache.expireAfterWriteSeconds}") Long expireAfterWriteSeconds) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build(new CatalogLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Map<String, CatalogProduct> getAll(Collection<String> productIds) {
+        return cache.getAll(productIds);
+    }
+
+    public void invalidate(String productId) {
+        invalidateAll(List.of(productId));
+    }
+
+    public void invalidateAll(Collection<String> productIds) {
+        cache.invalidateAll(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(productIds);
+                }
+            });
+        }
+    }
+
+    private class CatalogLoader implements CacheLoader<String, CatalogProduct> {
+
+        @Override
+        public CatalogProduct load(String productId) {
+            return productRepository.findById(productId)
+                    .map(CatalogProduct::of)
+                    .orElse(null);
+        }
+
+        @Override
+        public Map<String, CatalogProduct> loadAll(Set<? extends String> productIds) {
+            List<String> ids = List.copyOf(productIds);
+            Map<String, CatalogProduct> products = new HashMap<>();
+            for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+                List<String> chunk = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + LOAD_CHUNK_SIZE)));
+                for (Product product : productRepository.findAllById(chunk)) {
+                    products.put(product.getId(), CatalogProduct.of(product));
+                }
+            }
+            return products;
+        }
+    }
+}
@@ -2,14 +2,21 @@ package com.siller.rohlik.store.product;
 
 import com.siller.rohlik.store.product.mapper.ProductMapper;
 import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductListing;
+import com.siller.rohlik.store.product.model.ProductSearch;
 import com.siller.rohlik.store.rest.api.product.ProductApi;
 import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
 import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.ProductPageDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
 
 @RestController
 @RequiredArgsConstructor
@@ -25,6 +32,19 @@ public class ProductController implements ProductApi {
         return new ResponseEntity<>(new CreateNewProductResponseDto(product.getId()), HttpStatus.CREATED);
     }
 
+    @Override
+    public ResponseEntity<ProductPageDto> listProducts(
+            String after, Integer limit, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, String namePrefix) {
+        List<ProductListing> listings = productService.findProducts(
+                after, new ProductSearch(minPrice, maxPrice, inStock, namePrefix), limit + 1
+        );
+        ProductPageDto page = new ProductPageDto(productMapper.toListItemDtos(listings.subList(0, Math.min(limit, listings.size()))));
+        if (listings.size() > limit) {
+            page.setNextCursor(listings.get(limit - 1).id());
+        }
+        return ResponseEntity.ok(page);
+    }
+
     @Override
     public ResponseEntity<Void> deleteProduct(String id) {
         productService.deleteById(id);
@@ -33,11 +53,10 @@ public class ProductController implements ProductApi {
 
     @Override
     public ResponseEntity<Void> setProduct(String id, ProductDto productDto) {
-        boolean productExists = productService.existsById(id);
-        if (productExists) {
-            Product product = productMapper.fromDto(productDto);
-            product.setId(id);
-            productService.saveProduct(product);
+        Optional<Product> updatedProduct = productService.updateProduct(
+                id, product -> productMapper.updateFromDto(productDto, product)
+        );
+        if (updatedProduct.isPresent()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -0,0 +1,128 @@
+package com.siller.rohlik.store.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.batch.BatchReader;
+import com.siller.rohlik.store.product.mapper.ProductMapper;
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductUpsertErrorCode;
+import com.siller.rohlik.store.rest.model.product.ProductUpsertDto;
+import com.siller.rohlik.store.rest.model.product.ProductUpsertResultDto;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates or replaces products from an NDJSON or JSON array body. Valid products are written in chunks with one
+ * batched upsert per chunk, and one result line per product is flushed after every chunk. Invalid, malformed or
+ * failing products are reported without stopping the import, except for invalid JSON in an array, see
+ * {@link BatchReader}.
+ */
+@RestController
+public class ProductImportController {
+
+    static final String IMPORT_URL = "/products:batch";
+
+    private final ProductService productService;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final Integer chunkSize;
+
+    public ProductImportController(
+            ProductService productService,
+            ProductMapper productMapper,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${productImport.chunkSize}") Integer chunkSize) {
+        this.productService = productService;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostMapping(
+            path = IMPORT_URL,
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE}
+    )
+    public void importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        List<BatchReader.Row<ProductUpsertDto>> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        try (BatchReader<ProductUpsertDto> rows = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? BatchReader.ofNdjson(objectMapper, body, ProductUpsertDto.class)
+                : BatchReader.ofJson(objectMapper, body, ProductUpsertDto.class)) {
+            BatchReader.Row<ProductUpsertDto> row = rows.next();
+            while (row != null) {
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    index = importChunk(chunk, index, output);
+                }
+                row = rows.next();
+            }
+            importChunk(chunk, index, output);
+        }
+    }
+
+    private int importChunk(List<BatchReader.Row<ProductUpsertDto>> chunk, int firstIndex, OutputStream output) throws IOException {
+        if (chunk.isEmpty()) {
+            return firstIndex;
+        }
+        List<ProductUpsertResultDto> results = new ArrayList<>(chunk.size());
+        List<Product> validProducts = new ArrayList<>(chunk.size());
+        List<ProductUpsertResultDto> resultsOfValidProducts = new ArrayList<>(chunk.size());
+        int index = firstIndex;
+        for (BatchReader.Row<ProductUpsertDto> row : chunk) {
+            ProductUpsertResultDto result = new ProductUpsertResultDto().index(index++);
+            results.add(result);
+            ProductUpsertDto productUpsertDto = row.value();
+            if (row.isMalformed()) {
+                result.errorCode(ProductUpsertErrorCode.MALFORMED_PRODUCT.name());
+                continue;
+            }
+            result.id(productUpsertDto.getId());
+            if (validator.validate(productUpsertDto).isEmpty()) {
+                validProducts.add(productMapper.fromUpsertDto(productUpsertDto));
+                resultsOfValidProducts.add(result);
+            } else {
+                result.errorCode(ProductUpsertErrorCode.INVALID_PRODUCT.name());
+            }
+        }
+        if (!validProducts.isEmpty()) {
+            boolean[] upserted = productService.upsertProducts(validProducts);
+            for (int i = 0; i < upserted.length; i++) {
+                if (!upserted[i]) {
+                    resultsOfValidProducts.get(i).errorCode(ProductUpsertErrorCode.UPSERT_FAILED.name());
+                }
+            }
+        }
+        for (ProductUpsertResultDto result : results) {
+            writeResult(output, result);
+        }
+        output.flush();
+        chunk.clear();
+        return index;
+    }
+
+    private void writeResult(OutputStream output, ProductUpsertResultDto result) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(result));
+        output.write('\n');
+    }
+}
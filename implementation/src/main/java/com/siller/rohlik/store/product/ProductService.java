@@ -1,44 +1,115 @@
 package com.siller.rohlik.store.product;
 
+import com.siller.rohlik.store.concurrency.RetryOnOptimisticLockingFailure;
 import com.siller.rohlik.store.order.model.Order;
 import com.siller.rohlik.store.order.model.OrderItem;
 import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductListing;
+import com.siller.rohlik.store.product.model.ProductSearch;
+import com.siller.rohlik.store.product.model.ProductStock;
 import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.stock.StockChangedEvent;
+import com.siller.rohlik.store.product.stock.StockReservations;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final StockReservations stockReservations;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Product saveProduct(Product product) {
         product = productRepository.save(product);
+        productCatalog.invalidate(product.getId());
+        eventPublisher.publishEvent(new StockChangedEvent(List.of(product.getId())));
         return product;
     }
 
     @Transactional
     public void returnProducts(Order order) {
+        Map<String, Integer> quantities = new TreeMap<>();
         for (OrderItem orderItem : order.getItems()) {
-            Optional<Product> potentialProduct = productRepository.findById(orderItem.getProduct().getId());
-            if (potentialProduct.isPresent()) {
-                Product product = potentialProduct.get();
-                product.setQuantity(product.getQuantity() + orderItem.getQuantity());
-                productRepository.save(product);
+            quantities.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        stockReservations.release(order.getId(), new ArrayList<>(quantities.keySet()), new ArrayList<>(quantities.values()));
+        eventPublisher.publishEvent(new StockChangedEvent(quantities.keySet()));
+    }
+
+    @Transactional
+    public boolean[] upsertProducts(List<Product> products) {
+        List<String> productIds = products.stream().map(Product::getId).toList();
+        Set<String> trackedProductIds = new HashSet<>(stockReservations.findTrackedProducts(productIds));
+        for (Product product : products) {
+            if (product.getQuantity() == null) {
+                trackedProductIds.remove(product.getId());
             }
         }
+        boolean[] upserted = productRepository.upsertAll(products, trackedProductIds);
+        Map<String, Integer> trackedQuantities = new HashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (upserted[i] && trackedProductIds.contains(product.getId())) {
+                trackedQuantities.put(product.getId(), product.getQuantity());
+            } else if (upserted[i] && product.getQuantity() == null) {
+                stockReservations.forget(product.getId());
+            }
+        }
+        stockReservations.setQuantities(trackedQuantities);
+        productCatalog.invalidateAll(productIds);
+        eventPublisher.publishEvent(new StockChangedEvent(productIds));
+        return upserted;
+    }
+
+    public List<ProductListing> findProducts(String afterId, ProductSearch search, int limit) {
+        return productRepository.findListingsAfterId(afterId, search, limit);
+    }
+
+    public void returnProductsOfActiveOrders(Collection<String> orderIds) {
+        List<ProductStock> returnedProducts = stockReservations.releaseProductsOfOrdersInState(orderIds, Order.State.ACTIVE);
+        if (!returnedProducts.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(returnedProducts.stream().map(ProductStock::getId).toList()));
+        }
     }
 
+    @Transactional
     public void deleteById(String id) {
         productRepository.deleteById(id);
+        stockReservations.forget(id);
+        productCatalog.invalidate(id);
+        eventPublisher.publishEvent(new StockChangedEvent(List.of(id)));
     }
 
+    @Transactional
+    @RetryOnOptimisticLockingFailure
+    public Optional<Product> updateProduct(String id, Consumer<Product> update) {
+        Optional<Product> potentialProduct = productRepository.findById(id);
+        if (potentialProduct.isPresent()) {
+            Product product = potentialProduct.get();
+            Integer storedQuantity = product.getQuantity();
+            update.accept(product);
+            setQuantity(product, storedQuantity);
+            productRepository.save(product);
+            productCatalog.invalidate(id);
+            eventPublisher.publishEvent(new StockChangedEvent(List.of(id)));
+        }
+        return potentialProduct;
+    }
 
-    public boolean existsById(String id) {
-        return productRepository.existsById(id);
+    private void setQuantity(Product product, Integer storedQuantity) {
+        if (product.getQuantity() == null) {
+            stockReservations.forget(product.getId());
+        } else if (stockReservations.findTrackedProducts(List.of(product.getId())).contains(product.getId())) {
+            stockReservations.setQuantities(Map.of(product.getId(), product.getQuantity()));
+            product.setQuantity(storedQuantity);
+        }
     }
 }
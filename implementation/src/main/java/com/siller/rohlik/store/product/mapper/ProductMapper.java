@@ -1,11 +1,31 @@
 package com.siller.rohlik.store.product.mapper;
 
 import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductListing;
 import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.ProductListItemDto;
+import com.siller.rohlik.store.rest.model.product.ProductUpsertDto;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Product fromDto(ProductDto dto);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    void updateFromDto(ProductDto dto, @MappingTarget Product product);
+
+    @Mapping(target = "version", ignore = true)
+    Product fromUpsertDto(ProductUpsertDto dto);
+
+    ProductListItemDto toListItemDto(ProductListing listing);
+
+    List<ProductListItemDto> toListItemDtos(List<ProductListing> listings);
 }
@@ -0,0 +1,10 @@
+package com.siller.rohlik.store.product.model;
+
+import java.math.BigDecimal;
+
+public record CatalogProduct(String id, String name, BigDecimal price, boolean finished) {
+
+    public static CatalogProduct of(Product product) {
+        return new CatalogProduct(product.getId(), product.getName(), product.getPrice(), !product.isNotFinished());
+    }
+}
@@ -0,0 +1,18 @@
+package com.siller.rohlik.store.product.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Sum of the {@code StockHold} quantities of a product, the product is available up to its quantity minus this.
+ */
+@Entity
+@Data
+public class HeldStock {
+
+    @Id
+    private String productId;
+
+    private Integer quantity;
+}
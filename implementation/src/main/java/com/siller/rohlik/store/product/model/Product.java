@@ -7,6 +7,10 @@ import lombok.Data;
 import java.math.BigDecimal;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "product_name_idx", columnList = "name"),
+        @Index(name = "product_price_idx", columnList = "price")
+})
 @Data
 public class Product {
 
@@ -18,15 +22,10 @@ public class Product {
     private Integer quantity;
     private BigDecimal price;
 
-    public boolean doesNotHaveEnoughQuantity(int quantity) {
-        return this.quantity < quantity;
-    }
+    @Version
+    private Long version;
 
     public boolean isNotFinished(){
         return quantity == null || price == null;
     }
-
-    public void reduceQuantityBy(int quantity) {
-        this.quantity -= quantity;
-    }
 }
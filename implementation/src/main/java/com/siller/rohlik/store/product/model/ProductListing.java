@@ -0,0 +1,6 @@
+package com.siller.rohlik.store.product.model;
+
+import java.math.BigDecimal;
+
+public record ProductListing(String id, String name, BigDecimal price, Integer quantity) {
+}
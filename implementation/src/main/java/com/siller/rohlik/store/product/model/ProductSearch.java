@@ -0,0 +1,15 @@
+package com.siller.rohlik.store.product.model;
+
+import java.math.BigDecimal;
+
+public record ProductSearch(BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, String namePrefix) {
+
+    public String namePattern() {
+        if (namePrefix == null) {
+            return null;
+        }
+        return namePrefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,8 @@
+package com.siller.rohlik.store.product.model;
+
+public interface ProductStock {
+
+    String getId();
+
+    Integer getQuantity();
+}
@@ -0,0 +1,7 @@
+package com.siller.rohlik.store.product.model;
+
+public enum ProductUpsertErrorCode {
+    INVALID_PRODUCT,
+    MALFORMED_PRODUCT,
+    UPSERT_FAILED
+}
@@ -0,0 +1,36 @@
+package com.siller.rohlik.store.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Quantity of a product held for an active order. It is deleted when the order is paid, canceled or expires.
+ */
+@Entity
+@Data
+@IdClass(StockHold.Key.class)
+@Table(indexes = @Index(name = "stock_hold_product_idx", columnList = "product_id"))
+public class StockHold {
+
+    @Id
+    private String orderId;
+
+    @Id
+    private String productId;
+
+    private Integer quantity;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String orderId;
+
+        private String productId;
+    }
+}
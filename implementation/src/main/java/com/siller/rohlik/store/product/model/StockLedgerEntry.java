@@ -0,0 +1,18 @@
+package com.siller.rohlik.store.product.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity
+@Data
+@Table(indexes = @Index(name = "stock_ledger_entry_product_idx", columnList = "product_id"))
+public class StockLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String productId;
+
+    private Integer delta;
+}
@@ -0,0 +1,29 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.HeldStock;
+import com.siller.rohlik.store.product.model.ProductStock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface HeldStockRepository extends JpaRepository<HeldStock, String>, HeldStockUpdates {
+
+    @Query("""
+            select p.id as id, cast(p.quantity - coalesce(h.quantity, 0) as Integer) as quantity
+            from Product p left join HeldStock h on h.productId = p.id
+            where p.id in :productIds and p.quantity is not null""")
+    List<ProductStock> findAvailableQuantities(Collection<String> productIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h.productId from HeldStock h where h.productId in :productIds order by h.productId")
+    List<String> lockIds(Collection<String> productIds);
+
+    @Modifying
+    @Query("delete from HeldStock h where h.productId = :productId and h.quantity = 0")
+    int deleteUnusedCounter(String productId);
+}
@@ -0,0 +1,18 @@
+package com.siller.rohlik.store.product.repository;
+
+import java.util.List;
+
+public interface HeldStockUpdates {
+
+    /**
+     * Creates the missing counters of products with no quantity held yet.
+     */
+    void createMissingCounters(List<String> productIds);
+
+    /**
+     * @return 1 for each product whose quantity was held, 0 when not enough of it is available
+     */
+    int[] holdIfAvailable(List<String> productIds, List<Integer> quantities);
+
+    void unhold(List<String> productIds, List<Integer> quantities);
+}
@@ -0,0 +1,60 @@
+package com.siller.rohlik.store.product.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class HeldStockUpdatesImpl implements HeldStockUpdates {
+
+    private static final String CREATE_MISSING_COUNTER = """
+            insert into held_stock (product_id, quantity)
+            select ?, 0 where not exists (select 1 from held_stock where product_id = ?)""";
+    private static final String HOLD_IF_AVAILABLE = """
+            update held_stock set quantity = quantity + ?
+            where product_id = ? and quantity + ? <= (select p.quantity from product p where p.id = ?)""";
+    private static final String UNHOLD = "update held_stock set quantity = quantity - ? where product_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // A counter is created once per product, so concurrent first reservations of a product rarely race. The loser
+    // fails on the primary key and finds the counter of the winner, H2 keeps its transaction going.
+    @Override
+    public void createMissingCounters(List<String> productIds) {
+        for (String productId : productIds) {
+            try {
+                jdbcTemplate.update(CREATE_MISSING_COUNTER, productId, productId);
+            } catch (DuplicateKeyException e) {
+                // created by a concurrent transaction
+            }
+        }
+    }
+
+    @Override
+    public int[] holdIfAvailable(List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{quantities.get(i), productIds.get(i), quantities.get(i), productIds.get(i)});
+        }
+        int[] updatedRows = jdbcTemplate.batchUpdate(HOLD_IF_AVAILABLE, parameters);
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("Hold of product " + productIds.get(i) + " has no known update count");
+            }
+        }
+        return updatedRows;
+    }
+
+    @Override
+    public void unhold(List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{quantities.get(i), productIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate(UNHOLD, parameters);
+    }
+}
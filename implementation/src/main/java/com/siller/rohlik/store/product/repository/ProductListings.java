@@ -0,0 +1,11 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.ProductListing;
+import com.siller.rohlik.store.product.model.ProductSearch;
+
+import java.util.List;
+
+public interface ProductListings {
+
+    List<ProductListing> findListingsAfterId(String afterId, ProductSearch search, int limit);
+}
@@ -0,0 +1,75 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.ProductListing;
+import com.siller.rohlik.store.product.model.ProductSearch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Only the predicates of the given filters are rendered, so an unfiltered page is a plain range scan of the
+ * primary key starting right after {@code afterId}. Pages stay ordered by ID when filtered, so a filtered page
+ * either scans the IDs after {@code afterId} until enough products match or sorts all products found by the price
+ * or name index, its cost grows with the products looked through rather than with the page size. With {@code stockReservations.mode=holds} the quantity held for
+ * active orders is not available anymore, so it is subtracted from the listed quantity and from the stock filter.
+ */
+class ProductListingsImpl implements ProductListings {
+
+    private static final String SELECT_LISTINGS = """
+            select new com.siller.rohlik.store.product.model.ProductListing(p.id, p.name, p.price, p.quantity)
+            from Product p""";
+    private static final String SELECT_LISTINGS_WITHOUT_HELD_STOCK = """
+            select new com.siller.rohlik.store.product.model.ProductListing(p.id, p.name, p.price,
+                case when p.quantity < coalesce(h.quantity, 0) then 0 else p.quantity - coalesce(h.quantity, 0) end)
+            from Product p left join HeldStock h on h.productId = p.id""";
+
+    private final EntityManager entityManager;
+    private final boolean heldStock;
+
+    ProductListingsImpl(EntityManager entityManager, @Value("${stockReservations.mode}") String stockReservationsMode) {
+        this.entityManager = entityManager;
+        this.heldStock = "holds".equals(stockReservationsMode);
+    }
+
+    @Override
+    public List<ProductListing> findListingsAfterId(String afterId, ProductSearch search, int limit) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (afterId != null) {
+            predicates.add("p.id > :afterId");
+            parameters.put("afterId", afterId);
+        }
+        if (search.minPrice() != null) {
+            predicates.add("p.price >= :minPrice");
+            parameters.put("minPrice", search.minPrice());
+        }
+        if (search.maxPrice() != null) {
+            predicates.add("p.price <= :maxPrice");
+            parameters.put("maxPrice", search.maxPrice());
+        }
+        if (Boolean.TRUE.equals(search.inStock())) {
+            predicates.add(heldStock ? "p.quantity > coalesce(h.quantity, 0)" : "p.quantity > 0");
+        } else if (Boolean.FALSE.equals(search.inStock())) {
+            predicates.add(heldStock
+                    ? "(p.quantity is null or p.quantity <= coalesce(h.quantity, 0))"
+                    : "(p.quantity is null or p.quantity = 0)");
+        }
+        if (search.namePrefix() != null) {
+            predicates.add("p.name like :namePattern escape '\\'");
+            parameters.put("namePattern", search.namePattern());
+        }
+
+        String jpql = (heldStock ? SELECT_LISTINGS_WITHOUT_HELD_STOCK : SELECT_LISTINGS)
+                + (predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates))
+                + " order by p.id";
+        TypedQuery<ProductListing> query = entityManager.createQuery(jpql, ProductListing.class)
+                .setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+}
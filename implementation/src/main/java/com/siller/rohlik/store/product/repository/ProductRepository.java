@@ -1,7 +1,29 @@
 package com.siller.rohlik.store.product.repository;
 
+import com.siller.rohlik.store.order.model.Order;
 import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductStock;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
-public interface ProductRepository extends JpaRepository<Product, String> {
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepository extends JpaRepository<Product, String>, ProductStockUpdates, ProductUpserts, ProductListings {
+
+    @Query("select p.id as id, p.quantity as quantity from Product p where p.id in :ids")
+    List<ProductStock> findStockByIds(Collection<String> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p.id from Product p where p.id in :ids order by p.id")
+    List<String> lockIds(Collection<String> ids);
+
+    @Query("""
+            select i.product.id as id, cast(sum(i.quantity) as Integer) as quantity from OrderItem i
+            where i.order.id in :orderIds and i.order.state = :state
+            group by i.product.id
+            order by i.product.id""")
+    List<ProductStock> sumQuantitiesOfOrdersInState(Collection<String> orderIds, Order.State state);
 }
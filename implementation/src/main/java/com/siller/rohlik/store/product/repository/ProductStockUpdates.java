@@ -0,0 +1,12 @@
+package com.siller.rohlik.store.product.repository;
+
+import java.util.List;
+
+public interface ProductStockUpdates {
+
+    int[] reduceQuantitiesIfAvailable(List<String> productIds, List<Integer> quantities);
+
+    int[] increaseQuantities(List<String> productIds, List<Integer> quantities);
+
+    int[] reduceQuantitiesDownToZero(List<String> productIds, List<Integer> quantities);
+}
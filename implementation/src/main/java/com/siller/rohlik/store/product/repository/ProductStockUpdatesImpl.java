@@ -0,0 +1,89 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.Product;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.Serializable;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+class ProductStockUpdatesImpl implements ProductStockUpdates {
+
+    private static final String REDUCE_QUANTITY_IF_AVAILABLE =
+            "update product set quantity = quantity - ?, version = version + 1 where id = ? and quantity >= ?";
+    private static final String INCREASE_QUANTITY =
+            "update product set quantity = quantity + ?, version = version + 1 where id = ?";
+    private static final String REDUCE_QUANTITY_DOWN_TO_ZERO = """
+            update product set quantity = case when quantity > ? then quantity - ? else 0 end, version = version + 1
+            where id = ? and quantity is not null""";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] reduceQuantitiesIfAvailable(List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{quantities.get(i), productIds.get(i), quantities.get(i)});
+        }
+        int[] updatedRows = batchUpdate(REDUCE_QUANTITY_IF_AVAILABLE, productIds, parameters);
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("Reduction of product " + productIds.get(i) + " has no known update count");
+            }
+        }
+        return updatedRows;
+    }
+
+    @Override
+    public int[] increaseQuantities(List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{quantities.get(i), productIds.get(i)});
+        }
+        return batchUpdate(INCREASE_QUANTITY, productIds, parameters);
+    }
+
+    @Override
+    public int[] reduceQuantitiesDownToZero(List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{quantities.get(i), quantities.get(i), productIds.get(i)});
+        }
+        return batchUpdate(REDUCE_QUANTITY_DOWN_TO_ZERO, productIds, parameters);
+    }
+
+    // Only pending changes of products are flushed before the statements, so orders created in the same transaction
+    // stay queued for one batched flush. Products of the statements already loaded in the persistence context are
+    // refreshed afterwards instead of clearing it, so they neither show nor write back the old quantity.
+    private int[] batchUpdate(String sql, List<String> productIds, List<Object[]> parameters) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Product.class);
+        session.autoFlushIfRequired(productTables(persister));
+        int[] updatedRows = jdbcTemplate.batchUpdate(sql, parameters);
+        Set<Object> refreshedProducts = new HashSet<>();
+        for (String productId : productIds) {
+            Object product = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(productId, persister));
+            if (product != null && refreshedProducts.add(product)) {
+                entityManager.refresh(product);
+            }
+        }
+        return updatedRows;
+    }
+
+    private static Set<String> productTables(EntityPersister persister) {
+        Set<String> tables = new HashSet<>();
+        for (Serializable table : persister.getQuerySpaces()) {
+            tables.add((String) table);
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,14 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.Product;
+
+import java.util.List;
+import java.util.Set;
+
+public interface ProductUpserts {
+
+    /**
+     * Inserts or updates the products, stored quantities of the products in {@code keepQuantityOf} are left as they are.
+     */
+    boolean[] upsertAll(List<Product> products, Set<String> keepQuantityOf);
+}
@@ -0,0 +1,69 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+@Slf4j
+class ProductUpsertsImpl implements ProductUpserts {
+
+    private static final String UPSERT = """
+            merge into product p
+            using (values (cast(? as varchar(255)), cast(? as varchar(256)), cast(? as numeric(38,2)), cast(? as integer),
+                    cast(? as boolean)))
+                as s(id, name, price, quantity, keep_quantity)
+            on p.id = s.id
+            when matched then update set name = s.name, price = s.price,
+                quantity = case when s.keep_quantity then p.quantity else s.quantity end, version = p.version + 1
+            when not matched then insert (id, name, price, quantity, version) values (s.id, s.name, s.price, s.quantity, 0)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean[] upsertAll(List<Product> products, Set<String> keepQuantityOf) {
+        List<Object[]> parameters = new ArrayList<>(products.size());
+        for (Product product : products) {
+            parameters.add(new Object[]{
+                    product.getId(), product.getName(), product.getPrice(), product.getQuantity(),
+                    keepQuantityOf.contains(product.getId())
+            });
+        }
+        boolean[] upserted = new boolean[products.size()];
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, parameters);
+            Arrays.fill(upserted, true);
+        } catch (DataAccessException e) {
+            if (!(e.getCause() instanceof BatchUpdateException batchUpdateException)) {
+                throw e;
+            }
+            int[] updateCounts = batchUpdateException.getUpdateCounts();
+            for (int i = 0; i < products.size(); i++) {
+                upserted[i] = i < updateCounts.length
+                        ? updateCounts[i] != Statement.EXECUTE_FAILED
+                        : upsert(parameters.get(i));
+            }
+        }
+        return upserted;
+    }
+
+    // Drivers that stop at the first failing row of a batch leave the rest of it to be written one by one.
+    private boolean upsert(Object[] parameters) {
+        try {
+            jdbcTemplate.update(UPSERT, parameters);
+            return true;
+        } catch (DataAccessException e) {
+            log.debug("Upsert of product {} failed", parameters[0], e);
+            return false;
+        }
+    }
+}
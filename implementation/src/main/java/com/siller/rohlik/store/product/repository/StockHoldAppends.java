@@ -0,0 +1,8 @@
+package com.siller.rohlik.store.product.repository;
+
+import java.util.List;
+
+public interface StockHoldAppends {
+
+    void append(String orderId, List<String> productIds, List<Integer> quantities);
+}
@@ -0,0 +1,24 @@
+package com.siller.rohlik.store.product.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class StockHoldAppendsImpl implements StockHoldAppends {
+
+    private static final String APPEND = "insert into stock_hold (order_id, product_id, quantity) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(String orderId, List<String> productIds, List<Integer> quantities) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{orderId, productIds.get(i), quantities.get(i)});
+        }
+        jdbcTemplate.batchUpdate(APPEND, parameters);
+    }
+}
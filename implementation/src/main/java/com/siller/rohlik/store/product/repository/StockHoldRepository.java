@@ -0,0 +1,37 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.ProductStock;
+import com.siller.rohlik.store.product.model.StockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockHoldRepository extends JpaRepository<StockHold, StockHold.Key>, StockHoldAppends {
+
+    @Query("""
+            select h.productId as id, h.quantity as quantity from StockHold h
+            where h.orderId = :orderId
+            order by h.productId""")
+    List<ProductStock> findHeldQuantitiesOfOrder(String orderId);
+
+    @Query("""
+            select h.productId as id, cast(sum(h.quantity) as Integer) as quantity from StockHold h, Order o
+            where o.id = h.orderId and h.orderId in :orderIds and o.state = :state
+            group by h.productId
+            order by h.productId""")
+    List<ProductStock> sumQuantitiesOfOrdersInState(Collection<String> orderIds, Order.State state);
+
+    @Modifying
+    @Query("delete from StockHold h where h.orderId = :orderId and h.productId in :productIds")
+    int deleteOfOrder(String orderId, Collection<String> productIds);
+
+    @Modifying
+    @Query("""
+            delete from StockHold h
+            where h.orderId in (select o.id from Order o where o.id in :orderIds and o.state = :state)""")
+    int deleteOfOrdersInState(Collection<String> orderIds, Order.State state);
+}
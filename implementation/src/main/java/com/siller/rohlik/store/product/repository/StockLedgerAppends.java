@@ -0,0 +1,8 @@
+package com.siller.rohlik.store.product.repository;
+
+import java.util.List;
+
+public interface StockLedgerAppends {
+
+    void append(List<String> productIds, List<Integer> deltas);
+}
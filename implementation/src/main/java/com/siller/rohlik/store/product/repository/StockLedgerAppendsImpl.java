@@ -0,0 +1,24 @@
+package com.siller.rohlik.store.product.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class StockLedgerAppendsImpl implements StockLedgerAppends {
+
+    private static final String APPEND = "insert into stock_ledger_entry (product_id, delta) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(List<String> productIds, List<Integer> deltas) {
+        List<Object[]> parameters = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            parameters.add(new Object[]{productIds.get(i), deltas.get(i)});
+        }
+        jdbcTemplate.batchUpdate(APPEND, parameters);
+    }
+}
@@ -0,0 +1,29 @@
+package com.siller.rohlik.store.product.repository;
+
+import com.siller.rohlik.store.product.model.ProductStock;
+import com.siller.rohlik.store.product.model.StockLedgerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockLedgerRepository extends JpaRepository<StockLedgerEntry, Long>, StockLedgerAppends {
+
+    @Query("select e from StockLedgerEntry e order by e.id")
+    List<StockLedgerEntry> findOldest(Pageable pageable);
+
+    @Query("""
+            select p.id as id,
+                cast(p.quantity + coalesce((select sum(e.delta) from StockLedgerEntry e where e.productId = p.id), 0)
+                    as Integer) as quantity
+            from Product p
+            where p.id in :productIds and p.quantity is not null""")
+    List<ProductStock> findQuantitiesIncludingPendingEntries(Collection<String> productIds);
+
+    @Modifying
+    @Query("delete from StockLedgerEntry e where e.productId = :productId")
+    int deleteByProductId(String productId);
+}
@@ -0,0 +1,92 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.ProductStock;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Reserves products by conditional updates of {@code Product.quantity}, so the row lock of a product is held
+ * until the reserving transaction ends.
+ */
+@Component
+@ConditionalOnProperty(name = "stockReservations.mode", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseStockReservations implements StockReservations {
+
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public boolean[] reserve(String orderId, List<String> productIds, List<Integer> quantities) {
+        int[] reducedProducts = productRepository.reduceQuantitiesIfAvailable(productIds, quantities);
+        boolean[] reserved = new boolean[reducedProducts.length];
+        for (int i = 0; i < reducedProducts.length; i++) {
+            reserved[i] = reducedProducts[i] > 0;
+        }
+        return reserved;
+    }
+
+    @Override
+    public void release(String orderId, List<String> productIds, List<Integer> quantities) {
+        productRepository.increaseQuantities(productIds, quantities);
+    }
+
+    @Override
+    public void settle(String orderId) {
+    }
+
+    @Override
+    public void lock(SortedSet<String> productIds) {
+        List<String> ids = List.copyOf(productIds);
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK_SIZE) {
+            productRepository.lockIds(ids.subList(from, Math.min(ids.size(), from + LOOKUP_CHUNK_SIZE)));
+        }
+    }
+
+    @Override
+    public List<ProductStock> releaseProductsOfOrdersInState(Collection<String> orderIds, Order.State state) {
+        List<ProductStock> orderedQuantities = productRepository.sumQuantitiesOfOrdersInState(orderIds, state);
+        if (!orderedQuantities.isEmpty()) {
+            productRepository.increaseQuantities(
+                    orderedQuantities.stream().map(ProductStock::getId).toList(),
+                    orderedQuantities.stream().map(ProductStock::getQuantity).toList()
+            );
+        }
+        return orderedQuantities;
+    }
+
+    @Override
+    public Map<String, Integer> findAvailableQuantities(Collection<String> productIds) {
+        List<String> ids = List.copyOf(productIds);
+        Map<String, Integer> quantities = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK_SIZE) {
+            int to = Math.min(ids.size(), from + LOOKUP_CHUNK_SIZE);
+            for (ProductStock productStock : productRepository.findStockByIds(ids.subList(from, to))) {
+                quantities.put(productStock.getId(), productStock.getQuantity());
+            }
+        }
+        return quantities;
+    }
+
+    @Override
+    public Set<String> findTrackedProducts(Collection<String> productIds) {
+        return Set.of();
+    }
+
+    @Override
+    public void setQuantities(Map<String, Integer> quantitiesOfTrackedProducts) {
+        if (!quantitiesOfTrackedProducts.isEmpty()) {
+            throw new IllegalArgumentException("No products are tracked outside of the database");
+        }
+    }
+
+    @Override
+    public void forget(String productId) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.siller.rohlik.store.product.stock;
+
+import java.util.Collection;
+
+/**
+ * Published inside the transaction which changed the available quantity of the products.
+ */
+public record StockChangedEvent(Collection<String> productIds) {
+}
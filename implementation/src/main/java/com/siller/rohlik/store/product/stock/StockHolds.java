@@ -0,0 +1,149 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.ProductStock;
+import com.siller.rohlik.store.product.repository.HeldStockRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.repository.StockHoldRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Reserves products by holding them for orders in {@code StockHold} rows, counted per product in {@code HeldStock}.
+ * A product is available up to its quantity minus its held quantity, so reservations, cancellations and expired
+ * orders only change the narrow counter rows and {@code Product.quantity} is reduced once the order is paid.
+ * Products can then be edited and listed without waiting for the reservations of their orders.
+ */
+@Component
+@ConditionalOnProperty(name = "stockReservations.mode", havingValue = "holds")
+@RequiredArgsConstructor
+public class StockHolds implements StockReservations {
+
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final StockHoldRepository stockHoldRepository;
+    private final HeldStockRepository heldStockRepository;
+    private final ProductRepository productRepository;
+
+    @Override
+    public boolean[] reserve(String orderId, List<String> productIds, List<Integer> quantities) {
+        heldStockRepository.createMissingCounters(productIds);
+        int[] heldProducts = heldStockRepository.holdIfAvailable(productIds, quantities);
+        boolean[] reserved = new boolean[heldProducts.length];
+        List<String> reservedProductIds = new ArrayList<>();
+        List<Integer> reservedQuantities = new ArrayList<>();
+        for (int i = 0; i < heldProducts.length; i++) {
+            reserved[i] = heldProducts[i] > 0;
+            if (reserved[i]) {
+                reservedProductIds.add(productIds.get(i));
+                reservedQuantities.add(quantities.get(i));
+            }
+        }
+        if (!reservedProductIds.isEmpty()) {
+            stockHoldRepository.append(orderId, reservedProductIds, reservedQuantities);
+        }
+        return reserved;
+    }
+
+    // Products of a settled order are not held anymore, they are returned to the stored quantity instead.
+    @Override
+    public void release(String orderId, List<String> productIds, List<Integer> quantities) {
+        Map<String, Integer> heldQuantities = new HashMap<>();
+        for (ProductStock hold : stockHoldRepository.findHeldQuantitiesOfOrder(orderId)) {
+            heldQuantities.put(hold.getId(), hold.getQuantity());
+        }
+        List<String> heldProductIds = new ArrayList<>();
+        List<Integer> unheldQuantities = new ArrayList<>();
+        List<String> settledProductIds = new ArrayList<>();
+        List<Integer> returnedQuantities = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            Integer heldQuantity = heldQuantities.get(productIds.get(i));
+            if (heldQuantity != null) {
+                heldProductIds.add(productIds.get(i));
+                unheldQuantities.add(heldQuantity);
+            } else {
+                settledProductIds.add(productIds.get(i));
+                returnedQuantities.add(quantities.get(i));
+            }
+        }
+        if (!heldProductIds.isEmpty()) {
+            stockHoldRepository.deleteOfOrder(orderId, heldProductIds);
+            heldStockRepository.unhold(heldProductIds, unheldQuantities);
+        }
+        if (!settledProductIds.isEmpty()) {
+            productRepository.increaseQuantities(settledProductIds, returnedQuantities);
+        }
+    }
+
+    // The quantity of a product may have been set below its held quantity meanwhile, the stored quantity then stops
+    // at zero instead of going negative.
+    @Override
+    public void settle(String orderId) {
+        List<ProductStock> holds = stockHoldRepository.findHeldQuantitiesOfOrder(orderId);
+        if (holds.isEmpty()) {
+            return;
+        }
+        List<String> productIds = holds.stream().map(ProductStock::getId).toList();
+        List<Integer> quantities = holds.stream().map(ProductStock::getQuantity).toList();
+        stockHoldRepository.deleteOfOrder(orderId, productIds);
+        heldStockRepository.unhold(productIds, quantities);
+        productRepository.reduceQuantitiesDownToZero(productIds, quantities);
+    }
+
+    @Override
+    public void lock(SortedSet<String> productIds) {
+        List<String> ids = List.copyOf(productIds);
+        heldStockRepository.createMissingCounters(ids);
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK_SIZE) {
+            heldStockRepository.lockIds(ids.subList(from, Math.min(ids.size(), from + LOOKUP_CHUNK_SIZE)));
+        }
+    }
+
+    @Override
+    public List<ProductStock> releaseProductsOfOrdersInState(Collection<String> orderIds, Order.State state) {
+        List<ProductStock> heldQuantities = stockHoldRepository.sumQuantitiesOfOrdersInState(orderIds, state);
+        if (!heldQuantities.isEmpty()) {
+            stockHoldRepository.deleteOfOrdersInState(orderIds, state);
+            heldStockRepository.unhold(
+                    heldQuantities.stream().map(ProductStock::getId).toList(),
+                    heldQuantities.stream().map(ProductStock::getQuantity).toList()
+            );
+        }
+        return heldQuantities;
+    }
+
+    @Override
+    public Map<String, Integer> findAvailableQuantities(Collection<String> productIds) {
+        List<String> ids = List.copyOf(productIds);
+        Map<String, Integer> quantities = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK_SIZE) {
+            int to = Math.min(ids.size(), from + LOOKUP_CHUNK_SIZE);
+            for (ProductStock productStock : heldStockRepository.findAvailableQuantities(ids.subList(from, to))) {
+                quantities.put(productStock.getId(), Math.max(0, productStock.getQuantity()));
+            }
+        }
+        return quantities;
+    }
+
+    @Override
+    public Set<String> findTrackedProducts(Collection<String> productIds) {
+        return Set.of();
+    }
+
+    @Override
+    public void setQuantities(Map<String, Integer> quantitiesOfTrackedProducts) {
+        if (!quantitiesOfTrackedProducts.isEmpty()) {
+            throw new IllegalArgumentException("No products are tracked outside of the database");
+        }
+    }
+
+    // Holds of active orders are kept, so that they are settled or released as usual if the product gets a
+    // quantity again.
+    @Override
+    public void forget(String productId) {
+        heldStockRepository.deleteUnusedCounter(productId);
+    }
+}
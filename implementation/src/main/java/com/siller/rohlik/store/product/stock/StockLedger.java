@@ -0,0 +1,307 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.ProductStock;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.repository.StockLedgerRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps the available quantity of products in memory, so reservations of hot products are granted by a short
+ * update of a counter instead of waiting for the row lock of the product, which is held until the transaction ends. Every change is appended to the
+ * {@code StockLedgerEntry} log in the caller's transaction and periodically written behind to
+ * {@code Product.quantity}. A counter is loaded as the stored quantity plus the entries not written yet, which
+ * also recovers the log of a crashed node; on startup the log is replayed to the products.
+ * <p>
+ * The counters are authoritative, so only one node may serve reservations of a product in this mode.
+ */
+@Component
+@ConditionalOnProperty(name = "stockReservations.mode", havingValue = "ledger")
+@Slf4j
+public class StockLedger implements StockReservations {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final ProductRepository productRepository;
+    private final StockLedgerWriter stockLedgerWriter;
+
+    private final List<ConcurrentHashMap<String, Counter>> shards;
+    private final long writeBehindMillis;
+    private final int writeBatchSize;
+    private final ScheduledExecutorService writer;
+
+    public StockLedger(
+            StockLedgerRepository stockLedgerRepository,
+            ProductRepository productRepository,
+            StockLedgerWriter stockLedgerWriter,
+            @Value("${stockLedger.shards}") Integer shards,
+            @Value("${stockLedger.writeBehindMillis}") Long writeBehindMillis,
+            @Value("${stockLedger.writeBatchSize}") Integer writeBatchSize,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.productRepository = productRepository;
+        this.stockLedgerWriter = stockLedgerWriter;
+        this.shards = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            this.shards.add(new ConcurrentHashMap<>());
+        }
+        this.writeBehindMillis = writeBehindMillis;
+        this.writeBatchSize = writeBatchSize;
+        this.writer = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("stock-ledger-writer").factory()
+                : Thread.ofPlatform().name("stock-ledger-writer").daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("Replayed {} stock ledger entries", writeBehind());
+        writer.scheduleWithFixedDelay(this::writeBehind, writeBehindMillis, writeBehindMillis, TimeUnit.MILLISECONDS);
+    }
+
+    int writeBehind() {
+        int written = 0;
+        try {
+            int batch;
+            do {
+                batch = stockLedgerWriter.writePendingEntries(writeBatchSize);
+                written += batch;
+            } while (batch == writeBatchSize);
+        } catch (RuntimeException e) {
+            log.error("Writing stock ledger entries failed, they are retried with the next write", e);
+        }
+        return written;
+    }
+
+    @Override
+    public boolean[] reserve(String orderId, List<String> productIds, List<Integer> quantities) {
+        Map<String, Counter> counters = counters(productIds);
+        boolean[] reserved = new boolean[productIds.size()];
+        List<Counter> takenCounters = new ArrayList<>();
+        List<Integer> takenQuantities = new ArrayList<>();
+        List<String> reservedProductIds = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            Counter counter = counters.get(productIds.get(i));
+            if (counter != null && counter.tryTake(quantities.get(i))) {
+                reserved[i] = true;
+                takenCounters.add(counter);
+                takenQuantities.add(quantities.get(i));
+                reservedProductIds.add(productIds.get(i));
+                deltas.add(-quantities.get(i));
+            }
+        }
+        if (!reservedProductIds.isEmpty()) {
+            registerSynchronization(status -> {
+                for (int i = 0; i < takenCounters.size(); i++) {
+                    takenCounters.get(i).completeTake(takenQuantities.get(i), status == TransactionSynchronization.STATUS_COMMITTED);
+                }
+            });
+            stockLedgerRepository.append(reservedProductIds, deltas);
+        }
+        return reserved;
+    }
+
+    // Reservations take the counters without waiting, so there is nothing to lock.
+    @Override
+    public void lock(SortedSet<String> productIds) {
+    }
+
+    // Released quantity becomes available once it is committed, loading the counters first keeps the committed
+    // entries from being counted twice.
+    @Override
+    public void release(String orderId, List<String> productIds, List<Integer> quantities) {
+        release(productIds, quantities);
+    }
+
+    private void release(List<String> productIds, List<Integer> quantities) {
+        Map<String, Counter> counters = counters(productIds);
+        stockLedgerRepository.append(productIds, quantities);
+        onCommit(() -> add(counters, productIds, quantities, 1));
+    }
+
+    @Override
+    public void settle(String orderId) {
+    }
+
+    @Override
+    public List<ProductStock> releaseProductsOfOrdersInState(Collection<String> orderIds, Order.State state) {
+        List<ProductStock> orderedQuantities = productRepository.sumQuantitiesOfOrdersInState(orderIds, state);
+        if (!orderedQuantities.isEmpty()) {
+            release(
+                    orderedQuantities.stream().map(ProductStock::getId).toList(),
+                    orderedQuantities.stream().map(ProductStock::getQuantity).toList()
+            );
+        }
+        return orderedQuantities;
+    }
+
+    @Override
+    public Map<String, Integer> findAvailableQuantities(Collection<String> productIds) {
+        Map<String, Integer> quantities = new HashMap<>();
+        counters(productIds).forEach((productId, counter) ->
+                quantities.put(productId, (int) Math.min(Integer.MAX_VALUE, counter.available())));
+        return quantities;
+    }
+
+    @Override
+    public Set<String> findTrackedProducts(Collection<String> productIds) {
+        return counters(productIds).keySet();
+    }
+
+    @Override
+    public void setQuantities(Map<String, Integer> quantitiesOfTrackedProducts) {
+        if (quantitiesOfTrackedProducts.isEmpty()) {
+            return;
+        }
+        Map<String, Counter> counters = counters(quantitiesOfTrackedProducts.keySet());
+        List<String> productIds = new ArrayList<>(quantitiesOfTrackedProducts.size());
+        List<Integer> deltas = new ArrayList<>(quantitiesOfTrackedProducts.size());
+        quantitiesOfTrackedProducts.forEach((productId, quantity) -> {
+            Counter counter = counters.get(productId);
+            if (counter == null) {
+                throw new IllegalArgumentException("Product " + productId + " is not tracked by the stock ledger");
+            }
+            productIds.add(productId);
+            deltas.add(counter.set(quantity));
+        });
+        onRollback(() -> add(counters, productIds, deltas, -1));
+        stockLedgerRepository.append(productIds, deltas);
+    }
+
+    @Override
+    public void forget(String productId) {
+        stockLedgerRepository.deleteByProductId(productId);
+        onCommit(() -> shard(productId).remove(productId));
+    }
+
+    private Map<String, Counter> counters(Collection<String> productIds) {
+        Map<String, Counter> counters = new HashMap<>();
+        List<String> missingProductIds = new ArrayList<>();
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            Counter counter = shard(productId).get(productId);
+            if (counter != null) {
+                counters.put(productId, counter);
+            } else {
+                missingProductIds.add(productId);
+            }
+        }
+        for (int from = 0; from < missingProductIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<String> chunk = missingProductIds.subList(from, Math.min(missingProductIds.size(), from + LOAD_CHUNK_SIZE));
+            for (ProductStock stock : stockLedgerRepository.findQuantitiesIncludingPendingEntries(chunk)) {
+                Counter loaded = new Counter(stock.getQuantity());
+                Counter existing = shard(stock.getId()).putIfAbsent(stock.getId(), loaded);
+                counters.put(stock.getId(), existing != null ? existing : loaded);
+            }
+        }
+        return counters;
+    }
+
+    private ConcurrentHashMap<String, Counter> shard(String productId) {
+        return shards.get(Math.floorMod(productId.hashCode(), shards.size()));
+    }
+
+    private static void add(Map<String, Counter> counters, List<String> productIds, List<Integer> deltas, int sign) {
+        for (int i = 0; i < productIds.size(); i++) {
+            Counter counter = counters.get(productIds.get(i));
+            if (counter != null) {
+                counter.add((long) sign * deltas.get(i));
+            }
+        }
+    }
+
+    private static void onCommit(Runnable action) {
+        registerSynchronization(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        registerSynchronization(status -> {
+            if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                action.run();
+            }
+        });
+    }
+
+    private static void registerSynchronization(IntConsumer afterCompletion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock ledger can only be changed in a transaction");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                afterCompletion.accept(status);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (writer.awaitTermination(writeBehindMillis, TimeUnit.MILLISECONDS)) {
+            writeBehind();
+        }
+    }
+
+    // Quantity taken by reservations is counted as uncommitted until their transactions end. A quantity set
+    // meanwhile replaces only the committed quantity: the uncommitted reservations are taken from the new quantity,
+    // and a rolled back one gives back what it took, so the set quantity is not lost either way.
+    private static final class Counter {
+
+        private long available;
+        private long uncommittedTakes;
+
+        private Counter(long available) {
+            this.available = available;
+        }
+
+        private synchronized long available() {
+            return available;
+        }
+
+        private synchronized boolean tryTake(int quantity) {
+            if (available < quantity) {
+                return false;
+            }
+            available -= quantity;
+            uncommittedTakes += quantity;
+            return true;
+        }
+
+        private synchronized void completeTake(int quantity, boolean committed) {
+            uncommittedTakes -= quantity;
+            if (!committed) {
+                available += quantity;
+            }
+        }
+
+        private synchronized void add(long delta) {
+            available += delta;
+        }
+
+        // Returns the change of the committed quantity, which is what the ledger entry of the set has to carry.
+        private synchronized int set(int quantity) {
+            long committed = available + uncommittedTakes;
+            available = quantity - uncommittedTakes;
+            return Math.toIntExact(quantity - committed);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.siller.rohlik.store.product.model.StockLedgerEntry;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.repository.StockLedgerRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@ConditionalOnProperty(name = "stockReservations.mode", havingValue = "ledger")
+@RequiredArgsConstructor
+public class StockLedgerWriter {
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final ProductRepository productRepository;
+
+    /**
+     * Moves the oldest committed ledger entries into {@code Product.quantity}, one update per product.
+     *
+     * @return number of entries written
+     */
+    @Transactional
+    public int writePendingEntries(int batchSize) {
+        List<StockLedgerEntry> entries = stockLedgerRepository.findOldest(PageRequest.of(0, batchSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Map<String, Integer> deltas = new TreeMap<>();
+        for (StockLedgerEntry entry : entries) {
+            deltas.merge(entry.getProductId(), entry.getDelta(), Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            productRepository.increaseQuantities(new ArrayList<>(deltas.keySet()), new ArrayList<>(deltas.values()));
+        }
+        stockLedgerRepository.deleteAllByIdInBatch(entries.stream().map(StockLedgerEntry::getId).toList());
+        return entries.size();
+    }
+}
@@ -0,0 +1,58 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.product.model.ProductStock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Quantities of products available for new orders. Changes join the caller's transaction and are undone when it
+ * rolls back.
+ */
+public interface StockReservations {
+
+    /**
+     * Reserves each line of the order on its own, the result tells which of them were reserved.
+     */
+    boolean[] reserve(String orderId, List<String> productIds, List<Integer> quantities);
+
+    /**
+     * Gives back products reserved for the order, also after it was {@link #settle(String) settled}.
+     */
+    void release(String orderId, List<String> productIds, List<Integer> quantities);
+
+    /**
+     * Makes the reservations of a paid order final.
+     */
+    void settle(String orderId);
+
+    /**
+     * Makes transactions reserving products for several orders wait for each other in the order of the product IDs
+     * instead of deadlocking, has to be called before the first reservation of such a transaction.
+     */
+    void lock(SortedSet<String> productIds);
+
+    /**
+     * @return released quantity of each product
+     */
+    List<ProductStock> releaseProductsOfOrdersInState(Collection<String> orderIds, Order.State state);
+
+    Map<String, Integer> findAvailableQuantities(Collection<String> productIds);
+
+    /**
+     * Products whose available quantity is tracked outside of {@code Product.quantity}. Their stored quantity must
+     * not be overwritten, new quantities are set through {@link #setQuantities(Map)} instead.
+     */
+    Set<String> findTrackedProducts(Collection<String> productIds);
+
+    void setQuantities(Map<String, Integer> quantitiesOfTrackedProducts);
+
+    /**
+     * Stops tracking a product that was deleted or got its stored quantity cleared.
+     */
+    void forget(String productId);
+}
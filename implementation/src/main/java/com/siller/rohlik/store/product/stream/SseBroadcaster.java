@@ -0,0 +1,263 @@
+package com.siller.rohlik.store.product.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans events out to SSE subscribers without waiting for any of them. Every subscriber has a bounded queue of
+ * unsent events which the sender threads drain with non-blocking servlet writes, so a subscriber that stops reading
+ * never holds a sender thread. A subscriber whose queue is full is too slow and gets disconnected, so it cannot
+ * pile up memory either.
+ */
+@Component
+public class SseBroadcaster {
+
+    static final String SUBSCRIBERS_METRIC = "store.products.stream.subscribers";
+    static final String DROPPED_METRIC = "store.products.stream.dropped";
+    private static final byte[] CONNECTED = comment("connected");
+
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final Counter droppedSubscribers;
+
+    public SseBroadcaster(
+            MeterRegistry meterRegistry,
+            @Value("${stockStream.maxSubscribers}") Integer maxSubscribers,
+            @Value("${stockStream.queueCapacity}") Integer queueCapacity,
+            @Value("${stockStream.timeoutMillis}") Long timeoutMillis,
+            @Value("${stockStream.senderThreads}") Integer senderThreads,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.senders = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stock-stream-", 1).factory())
+                : Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform().name("stock-stream-", 1).daemon().factory());
+        Gauge.builder(SUBSCRIBERS_METRIC, subscriberCount, AtomicInteger::get).register(meterRegistry);
+        this.droppedSubscribers = Counter.builder(DROPPED_METRIC).register(meterRegistry);
+    }
+
+    /**
+     * Server-Sent Event with a name and single line data, built once for all subscribers.
+     */
+    public static byte[] event(String name, String data) {
+        return ("event:" + name + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] comment(String comment) {
+        return (":" + comment + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts streaming to the response of the request as a new subscriber.
+     *
+     * @return false when {@code stockStream.maxSubscribers} are connected already
+     */
+    public boolean subscribe(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMillis);
+        Subscriber subscriber = new Subscriber(asyncContext, response.getOutputStream());
+        asyncContext.addListener(subscriber);
+        subscriber.queue.offer(CONNECTED);
+        subscriber.output.setWriteListener(subscriber);
+        subscribers.add(subscriber);
+        return true;
+    }
+
+    public boolean hasSubscribers() {
+        return subscriberCount.get() > 0;
+    }
+
+    /**
+     * Queues an event to every subscriber.
+     */
+    public void broadcast(byte[] event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        senders.shutdown();
+    }
+
+    // Only one sender at a time writes to a subscriber: whoever raises the wakeups from zero runs the drain, and the
+    // drain repeats until no wakeup came in meanwhile. The container wakes it up again through onWritePossible once
+    // a write it could not take at once has been sent. The container recycles the request and the response once a
+    // listener returned from the completion or an error, so the drain and the listeners exclude each other and the
+    // drain stops touching them for good.
+    private class Subscriber implements Runnable, WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream output;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger wakeups = new AtomicInteger();
+        private volatile boolean closing;
+        private boolean completed;
+        private boolean unflushed;
+
+        private Subscriber(AsyncContext asyncContext, ServletOutputStream output) {
+            this.asyncContext = asyncContext;
+            this.output = output;
+        }
+
+        private void offer(byte[] event) {
+            if (!queue.offer(event)) {
+                if (remove()) {
+                    droppedSubscribers.increment();
+                    close();
+                }
+            } else {
+                wakeUp();
+            }
+        }
+
+        private void close() {
+            closing = true;
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            if (wakeups.getAndIncrement() == 0) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    remove();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int handled = wakeups.get();
+            do {
+                drain();
+                handled = wakeups.addAndGet(-handled);
+            } while (handled > 0);
+        }
+
+        private synchronized void drain() {
+            if (completed) {
+                return;
+            }
+            if (!closing) {
+                try {
+                    write();
+                    return;
+                } catch (IOException | IllegalStateException e) {
+                    remove();
+                }
+            }
+            complete();
+        }
+
+        private void write() throws IOException {
+            while (output.isReady()) {
+                byte[] event = queue.poll();
+                if (event == null) {
+                    if (unflushed) {
+                        unflushed = false;
+                        output.flush();
+                    }
+                    return;
+                }
+                output.write(event);
+                unflushed = true;
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            wakeUp();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completeFromContainer();
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            completed = true;
+            remove();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            completeFromContainer();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            completeFromContainer();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        // The container dispatches to the error page after a timeout or an error unless a listener completes the
+        // request before returning.
+        private synchronized void completeFromContainer() {
+            remove();
+            closing = true;
+            if (!completed) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            completed = true;
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // completed by the container already
+            }
+        }
+
+        private boolean remove() {
+            if (subscribers.remove(this)) {
+                subscriberCount.decrementAndGet();
+                queue.clear();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.siller.rohlik.store.product.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.product.stock.StockChangedEvent;
+import com.siller.rohlik.store.product.stock.StockReservations;
+import com.siller.rohlik.store.rest.model.product.StockLevelChangeDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the available quantity of products changed through this node. Committed changes are coalesced per
+ * product: at the end of every {@code stockStream.windowMillis} the quantities of the changed products are read
+ * once and broadcast together with their delta to the previously sent quantity, changes cancelling out within a
+ * window are not sent at all. Nothing is collected or read while there are no subscribers.
+ */
+@Component
+@Slf4j
+public class StockLevelStream {
+
+    static final String EVENT_NAME = "stock";
+    private static final byte[] HEARTBEAT = SseBroadcaster.comment("heartbeat");
+
+    private final StockReservations stockReservations;
+    private final SseBroadcaster sseBroadcaster;
+    private final ObjectMapper objectMapper;
+
+    private final long windowMillis;
+    private final long heartbeatMillis;
+    private final Set<String> changedProductIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> sentQuantities = new HashMap<>();
+    private final ScheduledExecutorService ticker;
+    private long lastBroadcastMillis;
+
+    public StockLevelStream(
+            StockReservations stockReservations,
+            SseBroadcaster sseBroadcaster,
+            ObjectMapper objectMapper,
+            @Value("${stockStream.windowMillis}") Long windowMillis,
+            @Value("${stockStream.heartbeatMillis}") Long heartbeatMillis,
+            @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.stockReservations = stockReservations;
+        this.sseBroadcaster = sseBroadcaster;
+        this.objectMapper = objectMapper;
+        this.windowMillis = windowMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("stock-stream-ticker").factory()
+                : Thread.ofPlatform().name("stock-stream-ticker").daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (sseBroadcaster.hasSubscribers()) {
+            changedProductIds.addAll(event.productIds());
+        }
+    }
+
+    private void flush() {
+        try {
+            if (!sseBroadcaster.hasSubscribers()) {
+                changedProductIds.clear();
+                sentQuantities.clear();
+                return;
+            }
+            List<StockLevelChangeDto> changes = findChanges(drainChangedProductIds());
+            long now = System.currentTimeMillis();
+            if (!changes.isEmpty()) {
+                sseBroadcaster.broadcast(SseBroadcaster.event(EVENT_NAME, objectMapper.writeValueAsString(changes)));
+                lastBroadcastMillis = now;
+            } else if (now - lastBroadcastMillis >= heartbeatMillis) {
+                sseBroadcaster.broadcast(HEARTBEAT);
+                lastBroadcastMillis = now;
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.error("Streaming stock levels failed, the changes are sent with the next change of the products", e);
+        }
+    }
+
+    private List<String> drainChangedProductIds() {
+        List<String> productIds = new ArrayList<>();
+        for (Iterator<String> changed = changedProductIds.iterator(); changed.hasNext(); ) {
+            productIds.add(changed.next());
+            changed.remove();
+        }
+        return productIds;
+    }
+
+    private List<StockLevelChangeDto> findChanges(List<String> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Integer> quantities = stockReservations.findAvailableQuantities(productIds);
+        List<StockLevelChangeDto> changes = new ArrayList<>();
+        for (String productId : productIds) {
+            Integer quantity = quantities.get(productId);
+            boolean sentBefore = sentQuantities.containsKey(productId);
+            Integer sentQuantity = sentQuantities.put(productId, quantity);
+            if (sentBefore && Objects.equals(sentQuantity, quantity)) {
+                continue;
+            }
+            changes.add(new StockLevelChangeDto(productId)
+                    .quantity(quantity)
+                    .delta(sentQuantity != null && quantity != null ? quantity - sentQuantity : null));
+        }
+        return changes;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,31 @@
+package com.siller.rohlik.store.product.stream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Server-Sent Events of {@code StockLevelChange}s, so that frontends do not need to poll the products to find out
+ * which of them sold out. Answers 503 when {@code stockStream.maxSubscribers} are connected already.
+ */
+@RestController
+@RequiredArgsConstructor
+public class StockStreamController {
+
+    static final String STREAM_URL = "/products/stream";
+
+    private final SseBroadcaster sseBroadcaster;
+
+    @GetMapping(path = STREAM_URL, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamStockLevels(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!sseBroadcaster.subscribe(request, response)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+}
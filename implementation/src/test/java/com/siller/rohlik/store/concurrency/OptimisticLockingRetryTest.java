@@ -0,0 +1,116 @@
+package com.siller.rohlik.store.concurrency;
+
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(
+        properties = {
+                "optimisticLocking.retry.maxAttempts=3",
+                "optimisticLocking.retry.initialBackoffMillis=1",
+                "optimisticLocking.retry.maxBackoffMillis=2"
+        }
+)
+public class OptimisticLockingRetryTest {
+
+    @Autowired
+    private ConflictingOperation conflictingOperation;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanDb() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void conflictingOperation_isRetriedUntilItSucceeds() {
+        double conflictsBefore = metric(OptimisticLockingRetryAspect.CONFLICTS_METRIC);
+        double retriesBefore = metric(OptimisticLockingRetryAspect.RETRIES_METRIC);
+
+        assertEquals(3, conflictingOperation.run(2));
+
+        assertEquals(2, metric(OptimisticLockingRetryAspect.CONFLICTS_METRIC) - conflictsBefore);
+        assertEquals(2, metric(OptimisticLockingRetryAspect.RETRIES_METRIC) - retriesBefore);
+    }
+
+    @Test
+    public void conflictingOperation_givesUpAfterMaxAttempts() {
+        double conflictsBefore = metric(OptimisticLockingRetryAspect.CONFLICTS_METRIC);
+        double retriesBefore = metric(OptimisticLockingRetryAspect.RETRIES_METRIC);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> conflictingOperation.run(5));
+
+        assertEquals(3, metric(OptimisticLockingRetryAspect.CONFLICTS_METRIC) - conflictsBefore);
+        assertEquals(2, metric(OptimisticLockingRetryAspect.RETRIES_METRIC) - retriesBefore);
+    }
+
+    @Test
+    public void savingStaleProduct_failsOnOptimisticLocking() {
+        Product product = new Product();
+        product.setName("Test Product 1");
+        product.setPrice(new BigDecimal("13.12"));
+        product.setQuantity(5);
+        product = productRepository.save(product);
+
+        Product staleProduct = productRepository.findById(product.getId()).get();
+        Product currentProduct = productRepository.findById(product.getId()).get();
+        currentProduct.setQuantity(4);
+        productRepository.save(currentProduct);
+
+        staleProduct.setQuantity(3);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productRepository.save(staleProduct));
+        assertEquals(4, productRepository.findById(product.getId()).get().getQuantity());
+    }
+
+    private double metric(String name) {
+        return meterRegistry.find(name)
+                .tag("operation", "ConflictingOperation.run")
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    @TestConfiguration
+    static class ConflictingOperationConfiguration {
+
+        @Bean
+        ConflictingOperation conflictingOperation() {
+            return new ConflictingOperation();
+        }
+    }
+
+    static class ConflictingOperation {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        @RetryOnOptimisticLockingFailure
+        int run(int conflicts) {
+            int attempt = attempts.incrementAndGet();
+            if (attempt <= conflicts) {
+                throw new OptimisticLockingFailureException("Conflict in attempt " + attempt);
+            }
+            attempts.set(0);
+            return attempt;
+        }
+    }
+}
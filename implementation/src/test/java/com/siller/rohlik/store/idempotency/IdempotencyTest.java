@@ -0,0 +1,249 @@
+package com.siller.rohlik.store.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.idempotency.model.IdempotentResponse;
+import com.siller.rohlik.store.idempotency.repository.IdempotentResponseRepository;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.payment.model.PaymentErrorCode;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IdempotencyTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
+    private static final String PRODUCT_URL_TEMPLATE = "/product/%s";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private IdempotentResponseRepository idempotentResponseRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        idempotentResponseRepository.deleteAllInBatch();
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void retriedOrder_isCreatedAndReservedOnce() throws Exception {
+        String productId = postProduct(5);
+        OrderDto order = orderOf(productId, 2);
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = postOrder(order, key);
+        MockHttpServletResponse retry = postOrder(order, key);
+
+        assertEquals(201, first.getStatus());
+        assertEquals(201, retry.getStatus());
+        assertEquals(orderIdOf(first), orderIdOf(retry));
+        assertNull(first.getHeader(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeader(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals(1, orderRepository.count());
+        assertEquals(3, productRepository.findById(productId).get().getQuantity());
+    }
+
+    @Test
+    public void concurrentRetries_createOneOrder() throws Exception {
+        String productId = postProduct(5);
+        OrderDto order = orderOf(productId, 1);
+        String key = UUID.randomUUID().toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> postOrder(order, key));
+            Future<MockHttpServletResponse> second = executor.submit(() -> postOrder(order, key));
+
+            assertEquals(201, first.get().getStatus());
+            assertEquals(201, second.get().getStatus());
+            assertEquals(orderIdOf(first.get()), orderIdOf(second.get()));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, orderRepository.count());
+        assertEquals(4, productRepository.findById(productId).get().getQuantity());
+    }
+
+    @Test
+    public void keyReusedForDifferentOrder_isRejected() throws Exception {
+        String productId = postProduct(5);
+        String key = UUID.randomUUID().toString();
+
+        postOrder(orderOf(productId, 1), key);
+        MockHttpServletResponse reused = postOrder(orderOf(productId, 2), key);
+
+        assertEquals(422, reused.getStatus());
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    public void rejectedOrder_isNotRecorded() throws Exception {
+        String productId = postProduct(1);
+        OrderDto order = orderOf(productId, 2);
+        String key = UUID.randomUUID().toString();
+
+        assertEquals(400, postOrder(order, key).getStatus());
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(2))))
+                .andExpect(status().isNoContent());
+
+        assertEquals(201, postOrder(order, key).getStatus());
+    }
+
+    @Test
+    public void responseRecordedByOtherNode_isReplayedWithoutCreatingOrder() throws Exception {
+        String productId = postProduct(5);
+        OrderDto order = orderOf(productId, 1);
+        String key = UUID.randomUUID().toString();
+        MockHttpServletResponse first = postOrder(order, key);
+        IdempotentResponse recorded = idempotentResponseRepository.findAll().getFirst();
+        String otherKey = UUID.randomUUID().toString();
+        idempotentResponseRepository.save(new IdempotentResponse(
+                "POST /orders " + otherKey, recorded.getRequestHash(), recorded.getStatus(), recorded.getBody(),
+                new Timestamp(System.currentTimeMillis())
+        ));
+
+        MockHttpServletResponse replayed = postOrder(order, otherKey);
+
+        assertEquals(201, replayed.getStatus());
+        assertEquals(orderIdOf(first), orderIdOf(replayed));
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    public void retriedPayment_isAcceptedAgain() throws Exception {
+        String productId = postProduct(5);
+        String orderId = orderIdOf(postOrder(orderOf(productId, 2), null));
+        PaymentDto payment = new PaymentDto().amount(new BigDecimal("2.00"));
+        String key = UUID.randomUUID().toString();
+
+        assertEquals(204, pay(orderId, payment, key).getStatus());
+        MockHttpServletResponse retry = pay(orderId, payment, key);
+        MockHttpServletResponse withoutKey = pay(orderId, payment, null);
+
+        assertEquals(204, retry.getStatus());
+        assertEquals("true", retry.getHeader(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals(400, withoutKey.getStatus());
+        assertEquals(PaymentErrorCode.ALREADY_PAYED.name(),
+                objectMapper.readValue(withoutKey.getContentAsString(), CreateNewPaymentErrorResponseDto.class).getErrorCode());
+        assertEquals(Order.State.PAYED, orderRepository.findById(orderId).get().getState());
+    }
+
+    @Test
+    public void keyOfExpiredResponseNotPurgedYet_isUsedAgain() throws Exception {
+        String productId = postProduct(5);
+        String key = UUID.randomUUID().toString();
+        idempotentResponseRepository.save(new IdempotentResponse(
+                "POST /orders " + key, "hashOfOtherOrder", 201, null,
+                new Timestamp(System.currentTimeMillis() - Duration.ofDays(2).toMillis())
+        ));
+
+        MockHttpServletResponse response = postOrder(orderOf(productId, 1), key);
+        MockHttpServletResponse retry = postOrder(orderOf(productId, 1), key);
+
+        assertEquals(201, response.getStatus());
+        assertNull(response.getHeader(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeader(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals(orderIdOf(response), orderIdOf(retry));
+        assertEquals(1, orderRepository.count());
+        assertTrue(idempotentResponseRepository.findCreatedAfter(
+                "POST /orders " + key, new Timestamp(System.currentTimeMillis() - Duration.ofHours(1).toMillis())).isPresent());
+    }
+
+    @Test
+    public void tooLongKey_isRejected() throws Exception {
+        String productId = postProduct(5);
+
+        MockHttpServletResponse response = postOrder(orderOf(productId, 1), "k".repeat(600));
+
+        assertEquals(400, response.getStatus());
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productRepository.findById(productId).get().getQuantity());
+    }
+
+    private static OrderDto orderOf(String productId, int quantity) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity));
+    }
+
+    private String orderIdOf(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readValue(response.getContentAsString(), CreateNewOrderResponseDto.class).getId();
+    }
+
+    private MockHttpServletResponse postOrder(OrderDto orderDto, String idempotencyKey) throws Exception {
+        MockHttpServletRequestBuilder request = post(ORDERS_URL)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderDto));
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+
+    private MockHttpServletResponse pay(String orderId, PaymentDto paymentDto, String idempotencyKey) throws Exception {
+        MockHttpServletRequestBuilder request = put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, orderId))
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(paymentDto));
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
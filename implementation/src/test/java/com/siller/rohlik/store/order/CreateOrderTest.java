@@ -183,6 +183,130 @@ public class CreateOrderTest {
     }
 
 
+    @Test
+    public void createOrder_withSameProductOnMoreLinesExceedingStock_returnsBadRequestAndKeepsStock() throws Exception {
+        OrderDto orderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId3).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId3).quantity(1));
+
+        String errorResponseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+
+        CreateNewOrderErrorResponseDto errorResponse = objectMapper.readValue(errorResponseFromSavingOrder, CreateNewOrderErrorResponseDto.class);
+
+        assertEquals(1, errorResponse.getErrors().size());
+        assertEquals(productId3, errorResponse.getErrors().get(0).getProductId());
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errorResponse.getErrors().get(0).getErrorCode());
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productRepository.findById(productId1).get().getQuantity());
+        assertEquals(1, productRepository.findById(productId3).get().getQuantity());
+    }
+
+
+    @Test
+    public void createOrder_withMoreProductsExceedingStock_reportsThemInBasketOrderAndKeepsStock() throws Exception {
+        String greaterProductId = productId3.compareTo(productId4) > 0 ? productId3 : productId4;
+        String lesserProductId = greaterProductId.equals(productId3) ? productId4 : productId3;
+        OrderDto orderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(greaterProductId).quantity(2))
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(lesserProductId).quantity(2));
+
+        String errorResponseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+
+        CreateNewOrderErrorResponseDto errorResponse = objectMapper.readValue(errorResponseFromSavingOrder, CreateNewOrderErrorResponseDto.class);
+
+        assertEquals(2, errorResponse.getErrors().size());
+        assertEquals(greaterProductId, errorResponse.getErrors().get(0).getProductId());
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errorResponse.getErrors().get(0).getErrorCode());
+        assertEquals(lesserProductId, errorResponse.getErrors().get(1).getProductId());
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errorResponse.getErrors().get(1).getErrorCode());
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productRepository.findById(productId1).get().getQuantity());
+        assertEquals(1, productRepository.findById(productId3).get().getQuantity());
+        assertEquals(0, productRepository.findById(productId4).get().getQuantity());
+    }
+
+    @Test
+    @Transactional
+    public void createOrder_withSameProductOnMoreLines_storesOneItemWithSummedQuantity() throws Exception {
+        OrderDto orderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(2))
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(1));
+
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated());
+
+        Order actualOrder = orderRepository.findAll().get(0);
+        assertEquals(2, actualOrder.getItems().size());
+        assertEquals(productId1, actualOrder.getItems().get(0).getProduct().getId());
+        assertEquals(3, actualOrder.getItems().get(0).getQuantity());
+        assertEquals(productId2, actualOrder.getItems().get(1).getProduct().getId());
+        assertEquals(1, actualOrder.getItems().get(1).getQuantity());
+        assertEquals(new BigDecimal("42.60"), actualOrder.getTotalPrice());
+        assertEquals(2, productRepository.findById(productId1).get().getQuantity());
+    }
+
+    @Test
+    public void createOrder_withInvalidItemAndSameProductOnMoreLines_reportsSummedQuantityMissingOnStock() throws Exception {
+        OrderDto orderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId3).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId("invalidProductId").quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId3).quantity(1));
+
+        String errorResponseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+
+        CreateNewOrderErrorResponseDto errorResponse = objectMapper.readValue(errorResponseFromSavingOrder, CreateNewOrderErrorResponseDto.class);
+
+        assertEquals(2, errorResponse.getErrors().size());
+        assertEquals(productId3, errorResponse.getErrors().get(0).getProductId());
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errorResponse.getErrors().get(0).getErrorCode());
+        assertEquals("invalidProductId", errorResponse.getErrors().get(1).getProductId());
+        assertEquals(CreateNewOrderError.Code.INVALID_PRODUCT.name(), errorResponse.getErrors().get(1).getErrorCode());
+    }
+
+    @Test
+    @Transactional
+    public void createOrder_afterRejectedOrder_doesNotKeepItsQuantities() throws Exception {
+        OrderDto rejectedOrderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(2))
+                .addOrderItemsItem(new OrderItemDto().productId(productId1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(1));
+        OrderDto orderDto = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(1))
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(1));
+
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(rejectedOrderDto)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated());
+
+        Order actualOrder = orderRepository.findAll().get(0);
+        assertEquals(2, actualOrder.getItems().size());
+        assertEquals(1, actualOrder.getItems().get(0).getQuantity());
+        assertEquals(1, actualOrder.getItems().get(1).getQuantity());
+    }
 
     @Test
     public void createOrder_withMissingProductId_returnsBadRequest() throws Exception {
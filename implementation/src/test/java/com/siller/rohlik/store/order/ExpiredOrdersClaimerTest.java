@@ -0,0 +1,147 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.ActiveOrderReference;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static java.lang.Thread.sleep;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        properties = {
+                "inactiveOrdersProcessor.cronExpression=-"
+        }
+)
+@AutoConfigureMockMvc
+public class ExpiredOrdersClaimerTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final long LEASE_MILLIS = 60_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ExpiredOrdersClaimer expiredOrdersClaimer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String orderId1;
+    private String orderId2;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        String productId = postProduct(
+                new ProductDto()
+                        .name("Test Product 1")
+                        .price(new BigDecimal("13.12"))
+                        .quantity(5)
+        );
+        orderId1 = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+        orderId2 = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(2)));
+    }
+
+    @Test
+    public void claimedOrders_areNotClaimedByAnotherNodeUntilTheLeaseExpires() throws Exception {
+        ExpiredOrdersClaimer.ClaimedPage pageOfNode1 = claimPage("node-1", LEASE_MILLIS);
+        assertEquals(List.of(orderId1, orderId2), orderIds(pageOfNode1.getClaimed()));
+
+        ExpiredOrdersClaimer.ClaimedPage pageOfNode2 = claimPage("node-2", LEASE_MILLIS);
+        assertTrue(pageOfNode2.isEmpty());
+        assertTrue(pageOfNode2.getClaimed().isEmpty());
+    }
+
+    @Test
+    public void ordersWithExpiredLease_areClaimedByAnotherNode() throws Exception {
+        claimPage("node-1", 0L);
+        sleep(5L);
+
+        ExpiredOrdersClaimer.ClaimedPage pageOfNode2 = claimPage("node-2", LEASE_MILLIS);
+        assertEquals(List.of(orderId1, orderId2), orderIds(pageOfNode2.getClaimed()));
+    }
+
+    @Test
+    public void claimedPages_continueAfterTheLastSeenId() {
+        ExpiredOrdersClaimer.ClaimedPage firstPage = expiredOrdersClaimer.claimPage(
+                "node-1", inFuture(), Long.MIN_VALUE, 1, LEASE_MILLIS
+        );
+        ExpiredOrdersClaimer.ClaimedPage secondPage = expiredOrdersClaimer.claimPage(
+                "node-2", inFuture(), firstPage.getLastCandidateId(), 1, LEASE_MILLIS
+        );
+
+        assertEquals(List.of(orderId1), orderIds(firstPage.getClaimed()));
+        assertEquals(List.of(orderId2), orderIds(secondPage.getClaimed()));
+    }
+
+    private ExpiredOrdersClaimer.ClaimedPage claimPage(String nodeId, long leaseMillis) {
+        return expiredOrdersClaimer.claimPage(nodeId, inFuture(), Long.MIN_VALUE, 10, leaseMillis);
+    }
+
+    private static Timestamp inFuture() {
+        return new Timestamp(System.currentTimeMillis() + 1000L);
+    }
+
+    private static List<String> orderIds(List<ActiveOrderReference> references) {
+        return references.stream()
+                .map(ActiveOrderReference::getOrderId)
+                .toList();
+    }
+
+    private String postOrder(OrderDto orderDto) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
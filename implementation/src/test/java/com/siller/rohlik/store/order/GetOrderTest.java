@@ -0,0 +1,180 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GetOrderTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDER_URL_TEMPLATE = "/orders/%s";
+    private static final String ORDERS_STATE_URL_TEMPLATE = "/orders/%s/state";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void getOrder_returnsItemsWithProducts() throws Exception {
+        String productId1 = postProduct(new ProductDto().name("Test Product 1").price(new BigDecimal("13.12")).quantity(5));
+        String productId2 = postProduct(new ProductDto().name("Test Product 2").price(new BigDecimal("3.24")).quantity(3));
+        String orderId = postOrder(new OrderDto()
+                .customerId("customer-1")
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(2))
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(1)));
+
+        MockHttpServletResponse response = mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, orderId)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        OrderDetailDto order = objectMapper.readValue(response.getContentAsString(), OrderDetailDto.class);
+
+        assertNotNull(response.getHeader("ETag"));
+        assertEquals(orderId, order.getId());
+        assertEquals("customer-1", order.getCustomerId());
+        assertEquals(Order.State.ACTIVE.name(), order.getState());
+        assertEquals(0, new BigDecimal("29.48").compareTo(order.getTotalPrice()));
+        assertEquals(2, order.getOrderItems().size());
+        OrderDetailItemDto item = order.getOrderItems().getFirst();
+        assertEquals(productId1, item.getProductId());
+        assertEquals("Test Product 1", item.getProductName());
+        assertEquals(2, item.getQuantity());
+        assertEquals(0, new BigDecimal("13.12").compareTo(item.getUnitPrice()));
+    }
+
+    @Test
+    public void getOrder_withCurrentETag_returnsNotModifiedUntilOrderChanges() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(5));
+        String orderId = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+        String eTag = mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, orderId)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        MockHttpServletResponse notModified = mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, orderId))
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andReturn().getResponse();
+        assertEquals(eTag, notModified.getHeader("ETag"));
+        assertEquals("", notModified.getContentAsString());
+
+        cancelOrder(orderId);
+
+        MockHttpServletResponse changed = mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, orderId))
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertNotEquals(eTag, changed.getHeader("ETag"));
+        assertEquals(Order.State.CANCELED.name(),
+                objectMapper.readValue(changed.getContentAsString(), OrderDetailDto.class).getState());
+    }
+
+    @Test
+    public void getNotExistingOrder_returnsNotFound() throws Exception {
+        mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, "not-existing-id")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, "not-existing-id")).header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void listOrders_walksOrdersOfCustomer() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(10));
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(postOrder(new OrderDto()
+                    .customerId("customer-1")
+                    .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1))));
+        }
+        postOrder(new OrderDto()
+                .customerId("customer-2")
+                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+        orderIds.sort(null);
+
+        List<String> listedIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get(ORDERS_URL).param("customerId", "customer-1").param("limit", "2");
+            if (cursor != null) {
+                request.param("after", cursor);
+            }
+            String response = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            OrderSummaryPageDto page = objectMapper.readValue(response, OrderSummaryPageDto.class);
+            page.getItems().forEach(order -> {
+                assertEquals(Order.State.ACTIVE.name(), order.getState());
+                listedIds.add(order.getId());
+            });
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(orderIds, listedIds);
+    }
+
+    private void cancelOrder(String orderId) throws Exception {
+        mockMvc.perform(put(String.format(ORDERS_STATE_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new WriteableOrderStateDto().state(Order.State.CANCELED.name()))))
+                .andExpect(status().isNoContent());
+    }
+
+    private String postOrder(OrderDto orderDto) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
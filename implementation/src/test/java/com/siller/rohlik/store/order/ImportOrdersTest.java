@@ -0,0 +1,186 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.model.OrderImportErrorCode;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderImportResultDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "orderImport.chunkSize=2")
+@AutoConfigureMockMvc
+public class ImportOrdersTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String IMPORT_URL = "/orders:batch";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String productId1;
+    private String productId2;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        productId1 = postProduct(
+                new ProductDto()
+                        .name("Test Product 1")
+                        .price(new BigDecimal("13.12"))
+                        .quantity(5)
+        );
+        productId2 = postProduct(
+                new ProductDto()
+                        .name("Test Product 2")
+                        .price(new BigDecimal("3.24"))
+                        .quantity(1)
+        );
+    }
+
+    @Test
+    public void importOrders_fromNdjson_createsValidOrdersAndReportsRejectedOnes() throws Exception {
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(orderOf(productId1, 2)),
+                objectMapper.writeValueAsString(orderOf("invalidProductId", 1)),
+                objectMapper.writeValueAsString(orderOf(productId1, 1).addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(2))),
+                objectMapper.writeValueAsString(orderOf(productId2, 1)),
+                objectMapper.writeValueAsString(orderOf(productId1, 1))
+        );
+
+        List<OrderImportResultDto> results = importOrders(body, APPLICATION_NDJSON.toString());
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertNotNull(results.get(0).getOrderId());
+        assertEquals(CreateNewOrderError.Code.INVALID_PRODUCT.name(), results.get(1).getErrors().get(0).getErrorCode());
+        assertEquals(1, results.get(2).getErrors().size());
+        assertEquals(productId2, results.get(2).getErrors().get(0).getProductId());
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), results.get(2).getErrors().get(0).getErrorCode());
+        assertNotNull(results.get(3).getOrderId());
+        assertNotNull(results.get(4).getOrderId());
+
+        assertEquals(3, orderRepository.count());
+        assertEquals(Order.State.ACTIVE, orderRepository.findById(results.get(4).getOrderId()).get().getState());
+        assertEquals(2, productRepository.findById(productId1).get().getQuantity());
+        assertEquals(0, productRepository.findById(productId2).get().getQuantity());
+    }
+
+    @Test
+    public void importOrders_fromJsonArray_createsOrders() throws Exception {
+        String body = objectMapper.writeValueAsString(List.of(orderOf(productId1, 1), orderOf(productId1, 1), orderOf(productId2, 1)));
+
+        List<OrderImportResultDto> results = importOrders(body, APPLICATION_JSON.toString());
+
+        assertEquals(3, results.size());
+        results.forEach(result -> assertNotNull(result.getOrderId()));
+        assertEquals(3, orderRepository.count());
+        assertEquals(3, productRepository.findById(productId1).get().getQuantity());
+    }
+
+    @Test
+    public void importOrders_withMalformedOrder_reportsItAndContinues() throws Exception {
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(orderOf(productId1, 1)),
+                "{\"orderItems\": [{\"productId\": ",
+                objectMapper.writeValueAsString(orderOf(productId2, 1))
+        );
+
+        List<OrderImportResultDto> results = importOrders(body, APPLICATION_NDJSON.toString());
+
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).getOrderId());
+        assertEquals(1, results.get(1).getIndex());
+        assertEquals(OrderImportErrorCode.MALFORMED_ORDER.name(), results.get(1).getErrorCode());
+        assertNotNull(results.get(2).getOrderId());
+        assertEquals(2, orderRepository.count());
+    }
+
+    @Test
+    public void importOrders_withInvalidOrder_reportsItAndCreatesOthers() throws Exception {
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(orderOf(productId1, 1)),
+                objectMapper.writeValueAsString(new OrderDto().addOrderItemsItem(new OrderItemDto().quantity(1))),
+                objectMapper.writeValueAsString(orderOf(productId2, 1))
+        );
+
+        List<OrderImportResultDto> results = importOrders(body, APPLICATION_NDJSON.toString());
+
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).getOrderId());
+        assertNull(results.get(1).getOrderId());
+        assertEquals(OrderImportErrorCode.INVALID_ORDER.name(), results.get(1).getErrorCode());
+        assertNotNull(results.get(2).getOrderId());
+        assertEquals(2, orderRepository.count());
+    }
+
+    private List<OrderImportResultDto> importOrders(String body, String contentType) throws Exception {
+        String response = mockMvc.perform(post(IMPORT_URL)
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<OrderImportResultDto> results = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            results.add(objectMapper.readValue(line, OrderImportResultDto.class));
+        }
+        return results;
+    }
+
+    private static OrderDto orderOf(String productId, int quantity) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity));
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
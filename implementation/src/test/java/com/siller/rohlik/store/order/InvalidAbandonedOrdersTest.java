@@ -33,6 +33,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest(
         properties = {
                 "inactiveOrdersProcessor.cronExpression=* * * * * *",
+                "inactiveOrdersProcessor.pageSize=1",
                 "activePaymentsShouldBeInvalidatedAfterSeconds=5"
         }
 )
@@ -0,0 +1,172 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.idempotency.repository.IdempotentResponseRepository;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderErrorDto;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderErrorResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"orderGroupCommit.enabled=true", "orderGroupCommit.windowMillis=200", "orderGroupCommit.maxBatchSize=4"})
+@AutoConfigureMockMvc
+public class OrderGroupCommitTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private IdempotentResponseRepository idempotentResponseRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private QueuedOrderCreator queuedOrderCreator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        idempotentResponseRepository.deleteAll();
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void concurrentOrders_areCreatedInGroupsAndRejectedOnTheirOwn() throws Exception {
+        String productId = postProduct(5);
+        DistributionSummary groupSizes = meterRegistry.find(OrderGroupCommit.BATCH_SIZE_METRIC).summary();
+        long groupedOrdersBefore = (long) groupSizes.totalAmount();
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(() -> postOrder(orderOf(productId))));
+        }
+        Future<MockHttpServletResponse> invalidOrderResponse = executor.submit(() -> postOrder(orderOf("unknown")));
+        int created = 0;
+        for (Future<MockHttpServletResponse> response : responses) {
+            if (response.get().getStatus() == 201) {
+                created++;
+            } else {
+                assertEquals(400, response.get().getStatus());
+                assertEquals(
+                        List.of(new CreateNewOrderErrorDto()
+                                .productId(productId)
+                                .errorCode(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name())),
+                        errorsOf(response.get())
+                );
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(5, created);
+        assertEquals(400, invalidOrderResponse.get().getStatus());
+        assertEquals(5, orderRepository.count());
+        assertEquals(0, productRepository.findById(productId).get().getQuantity());
+        assertEquals(9, (long) groupSizes.totalAmount() - groupedOrdersBefore);
+        assertTrue(groupSizes.max() > 1);
+    }
+
+    @Test
+    public void orderWithIdempotencyKey_isCreatedInItsOwnTransaction() throws Exception {
+        String productId = postProduct(5);
+
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "group-commit")
+                        .content(objectMapper.writeValueAsString(orderOf(productId))))
+                .andExpect(status().isCreated());
+
+        assertEquals(4, productRepository.findById(productId).get().getQuantity());
+    }
+
+    @Test
+    public void orderNotCreatedInTime_isGivenUpAndNotCreatedLater() throws Exception {
+        String productId = postProduct(5);
+        OrderGroupCommit notCommitting = new OrderGroupCommit(
+                orderService, queuedOrderCreator, meterRegistry, 10L, 10L, 4, 1, false
+        );
+        try {
+            assertThrows(OrderGroupCommit.GroupCommitUnavailableException.class,
+                    () -> notCommitting.createOrder(orderOf(productId)));
+
+            notCommitting.start();
+        } finally {
+            notCommitting.shutdown();
+        }
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productRepository.findById(productId).get().getQuantity());
+    }
+
+    private static OrderDto orderOf(String productId) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1));
+    }
+
+    private List<CreateNewOrderErrorDto> errorsOf(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readValue(response.getContentAsString(), CreateNewOrderErrorResponseDto.class).getErrors();
+    }
+
+    private MockHttpServletResponse postOrder(OrderDto orderDto) throws Exception {
+        return mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andReturn().getResponse();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,158 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.event.OrderStateTransitionMetrics;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.payment.model.PaymentErrorCode;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.order.PaymentDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class OrderMetricsTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
+    private static final String PROMETHEUS_URL = "/actuator/prometheus";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String productId;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        productId = postProduct(
+                new ProductDto()
+                        .name("Test Product 1")
+                        .price(new BigDecimal("13.12"))
+                        .quantity(5)
+        );
+    }
+
+    @Test
+    public void orderAndPayment_countsStateTransitions() throws Exception {
+        double createdBefore = count(OrderStateTransitionMetrics.TRANSITIONS_METRIC, "from", "NONE", "to", "ACTIVE");
+        double payedBefore = count(OrderStateTransitionMetrics.TRANSITIONS_METRIC, "from", "ACTIVE", "to", "PAYED");
+
+        String orderId = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(2)));
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("26.24")))))
+                .andExpect(status().isNoContent());
+
+        assertEquals(createdBefore + 1, count(OrderStateTransitionMetrics.TRANSITIONS_METRIC, "from", "NONE", "to", "ACTIVE"));
+        assertEquals(payedBefore + 1, count(OrderStateTransitionMetrics.TRANSITIONS_METRIC, "from", "ACTIVE", "to", "PAYED"));
+    }
+
+    @Test
+    public void rejectedOrderAndPayment_countErrorsByCode() throws Exception {
+        String invalidProduct = CreateNewOrderError.Code.INVALID_PRODUCT.name();
+        String wrongAmount = PaymentErrorCode.WRONG_AMOUNT.name();
+        double invalidProductBefore = count(OrderController.VALIDATION_ERRORS_METRIC, "code", invalidProduct);
+        double wrongAmountBefore = count("store.payments.errors", "code", wrongAmount);
+
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderDto()
+                                .addOrderItemsItem(new OrderItemDto().productId("not-existing-id").quantity(1)))))
+                .andExpect(status().isBadRequest());
+        String orderId = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(BigDecimal.ONE))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(invalidProductBefore + 1, count(OrderController.VALIDATION_ERRORS_METRIC, "code", invalidProduct));
+        assertEquals(wrongAmountBefore + 1, count("store.payments.errors", "code", wrongAmount));
+    }
+
+    @Test
+    public void prometheusEndpoint_exposesLatencyHistogramsAndStoreMetrics() throws Exception {
+        postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+
+        mockMvc.perform(get(PROMETHEUS_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+                .andExpect(content().string(containsString("store_orders_transitions_total")));
+    }
+
+    private double count(String name, String... tags) {
+        return meterRegistry.find(name)
+                .tags(tags)
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private String postOrder(OrderDto orderDto) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
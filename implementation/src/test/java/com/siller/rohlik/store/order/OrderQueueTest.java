@@ -0,0 +1,159 @@
+package com.siller.rohlik.store.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"orderQueue.enabled=true", "orderQueue.shards=2", "orderQueue.batchSize=3"})
+@AutoConfigureMockMvc
+public class OrderQueueTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDER_URL_TEMPLATE = "/orders/%s";
+    private static final String ORDER_STATUS_URL_TEMPLATE = "/orders/%s/status";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void queuedOrder_isCreatedUnderAcceptedId() throws Exception {
+        String productId = postProduct(5);
+
+        String orderId = postOrder(orderOf(productId, 2));
+
+        assertEquals("CREATED", awaitOutcome(orderId).getStatus());
+        mockMvc.perform(get(String.format(ORDER_URL_TEMPLATE, orderId))).andExpect(status().isOk());
+        assertEquals(3, productRepository.findById(productId).get().getQuantity());
+    }
+
+    @Test
+    public void queuedOrderWithoutEnoughProducts_isRejectedWithErrors() throws Exception {
+        String productId = postProduct(1);
+
+        String orderId = postOrder(orderOf(productId, 2));
+
+        OrderCreationStatusDto orderStatus = awaitOutcome(orderId);
+        assertEquals("REJECTED", orderStatus.getStatus());
+        assertEquals(
+                List.of(new CreateNewOrderErrorDto()
+                        .productId(productId)
+                        .errorCode(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name())),
+                orderStatus.getErrors()
+        );
+        assertEquals(0, orderRepository.count());
+        assertEquals(1, productRepository.findById(productId).get().getQuantity());
+    }
+
+    @Test
+    public void concurrentlyQueuedOrders_reserveAvailableProductsOnly() throws Exception {
+        String productId1 = postProduct(5);
+        String productId2 = postProduct(100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> orderIds = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            OrderDto orderDto = orderOf(productId2, 1).addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(1));
+            orderIds.add(executor.submit(() -> postOrder(orderDto)));
+        }
+        int created = 0;
+        for (Future<String> orderId : orderIds) {
+            if (awaitOutcome(orderId.get()).getStatus().equals("CREATED")) {
+                created++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(5, created);
+        assertEquals(5, orderRepository.count());
+        assertEquals(0, productRepository.findById(productId1).get().getQuantity());
+        assertEquals(95, productRepository.findById(productId2).get().getQuantity());
+    }
+
+    @Test
+    public void unknownOrder_hasNoStatus() throws Exception {
+        mockMvc.perform(get(String.format(ORDER_STATUS_URL_TEMPLATE, "unknown")))
+                .andExpect(status().isNotFound());
+    }
+
+    private OrderCreationStatusDto awaitOutcome(String orderId) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        OrderCreationStatusDto orderStatus;
+        do {
+            String response = mockMvc.perform(get(String.format(ORDER_STATUS_URL_TEMPLATE, orderId)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            orderStatus = objectMapper.readValue(response, OrderCreationStatusDto.class);
+            if (!orderStatus.getStatus().equals("PENDING")) {
+                return orderStatus;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        return orderStatus;
+    }
+
+    private static OrderDto orderOf(String productId, int quantity) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity));
+    }
+
+    private String postOrder(OrderDto orderDto) throws Exception {
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,67 @@
+package com.siller.rohlik.store.order.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10L;
+
+    @Test
+    public void keys_expireAtTheirDeadline_acrossAllLevels() {
+        HierarchicalTimingWheel<String> timingWheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 4, 10_000L, 0L);
+        timingWheel.add("near", 30L);
+        timingWheel.add("middle", 170L);
+        timingWheel.add("far", 6_430L);
+
+        assertEquals(List.of(), timingWheel.advanceTo(20L));
+        assertEquals(List.of("near"), timingWheel.advanceTo(30L));
+        assertEquals(List.of(), timingWheel.advanceTo(160L));
+        assertEquals(List.of("middle"), timingWheel.advanceTo(170L));
+        assertEquals(List.of(), timingWheel.advanceTo(6_420L));
+        assertEquals(List.of("far"), timingWheel.advanceTo(6_430L));
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void everyKey_expiresExactlyOnceAtItsTick() {
+        HierarchicalTimingWheel<Integer> timingWheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 8, 50_000L, 0L);
+        for (int deadlineTick = 1; deadlineTick <= 3_000; deadlineTick += 7) {
+            timingWheel.add(deadlineTick, deadlineTick * TICK_MILLIS);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        for (long now = 0; now <= 3_000 * TICK_MILLIS; now += TICK_MILLIS) {
+            for (Integer key : timingWheel.advanceTo(now)) {
+                assertEquals(now, key * TICK_MILLIS);
+                expired.add(key);
+            }
+        }
+        assertEquals(429, expired.size());
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void removedKeys_doNotExpire() {
+        HierarchicalTimingWheel<String> timingWheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 4, 10_000L, 0L);
+        timingWheel.add("removed", 500L);
+        timingWheel.add("kept", 500L);
+        timingWheel.remove("removed");
+
+        assertEquals(List.of("kept"), timingWheel.advanceTo(1_000L));
+    }
+
+    @Test
+    public void keysWithPassedDeadline_expireOnTheNextTick() {
+        HierarchicalTimingWheel<String> timingWheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 4, 10_000L, 1_000L);
+        timingWheel.add("overdue", 100L);
+
+        assertTrue(timingWheel.advanceTo(1_000L).isEmpty());
+        assertEquals(List.of("overdue"), timingWheel.advanceTo(1_010L));
+    }
+}
@@ -0,0 +1,117 @@
+package com.siller.rohlik.store.order.expiry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.order.PaymentDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static java.lang.Thread.sleep;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        properties = {
+                "inactiveOrdersProcessor.cronExpression=-",
+                "inactiveOrdersProcessor.timingWheel.enabled=true",
+                "inactiveOrdersProcessor.timingWheel.tickMillis=100",
+                "activePaymentsShouldBeInvalidatedAfterSeconds=2"
+        }
+)
+@AutoConfigureMockMvc
+public class OrderExpirySchedulerTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String productId;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        productId = postProduct(
+                new ProductDto()
+                        .name("Test Product 1")
+                        .price(new BigDecimal("13.12"))
+                        .quantity(5)
+        );
+    }
+
+    @Test
+    public void activeOrders_areInvalidatedByTheTimingWheelWithoutTheSweep() throws Exception {
+        String payedOrderId = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)));
+        String abandonedOrderId = postOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(2)));
+
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, payedOrderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("13.12")))))
+                .andExpect(status().isNoContent());
+
+        sleep(1000L);
+        assertEquals(Order.State.ACTIVE, orderRepository.findById(abandonedOrderId).get().getState());
+
+        sleep(2500L);
+        assertEquals(Order.State.PAYED, orderRepository.findById(payedOrderId).get().getState());
+        assertEquals(Order.State.INVALIDATED, orderRepository.findById(abandonedOrderId).get().getState());
+        assertEquals(4, productRepository.findById(productId).get().getQuantity());
+        assertEquals(0, activeOrderMetadataRepository.count());
+    }
+
+    private String postOrder(OrderDto orderDto) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,232 @@
+package com.siller.rohlik.store.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.OrderService;
+import com.siller.rohlik.store.order.event.OrderStateOutbox;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.outbox.model.OutboxEntry;
+import com.siller.rohlik.store.outbox.repository.OutboxEntryRepository;
+import com.siller.rohlik.store.outbox.sink.LocalBrokerOutboxSink;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "outbox.sink=broker")
+@AutoConfigureMockMvc
+public class OutboxTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDER_STATE_URL_TEMPLATE = "/orders/%s/state";
+    private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
+    private static final String TEST_TOPIC = "test";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private LocalBrokerOutboxSink broker;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxEntryRepository outboxEntryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void orderStateChanges_areRelayedInOrderOnce() throws Exception {
+        outboxRelay.relay();
+        long fromOffset = broker.endOffset(OrderStateOutbox.TOPIC);
+        String productId = postProduct(5);
+        String payedOrderId = postOrder(productId, 2);
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, payedOrderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("2.00")))))
+                .andExpect(status().isNoContent());
+        String canceledOrderId = postOrder(productId, 1);
+        mockMvc.perform(put(String.format(ORDER_STATE_URL_TEMPLATE, canceledOrderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new WriteableOrderStateDto().state("CANCELED"))))
+                .andExpect(status().isNoContent());
+
+        assertEquals(4, outboxRelay.relay());
+        assertEquals(0, outboxRelay.relay());
+
+        List<OutboxMessage> messages = broker.read(OrderStateOutbox.TOPIC, fromOffset, 10);
+        assertEquals(
+                List.of(payedOrderId, payedOrderId, canceledOrderId, canceledOrderId),
+                messages.stream().map(OutboxMessage::key).toList()
+        );
+        assertEquals(List.of("ACTIVE", "PAYED", "ACTIVE", "CANCELED"), newStates(messages));
+        assertEquals("ACTIVE", objectMapper.readTree(messages.get(1).payload()).get("previousState").asText());
+    }
+
+    @Test
+    public void invalidatedOrders_areRelayed() throws Exception {
+        outboxRelay.relay();
+        long fromOffset = broker.endOffset(OrderStateOutbox.TOPIC);
+        String orderId = postOrder(postProduct(5), 1);
+
+        orderService.invalidateActiveOrders(List.of(orderId));
+        outboxRelay.relay();
+
+        List<OutboxMessage> messages = broker.read(OrderStateOutbox.TOPIC, fromOffset, 10);
+        assertEquals(List.of("ACTIVE", "INVALIDATED"), newStates(messages));
+    }
+
+    @Test
+    public void rejectedOrder_isNotWrittenToOutbox() throws Exception {
+        String productId = postProduct(1);
+        long entries = outboxEntryRepository.count();
+
+        mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderOf(productId, 2))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(entries, outboxEntryRepository.count());
+    }
+
+    @Test
+    public void entriesAfterGap_waitForGapTimeout() {
+        Timestamp gapDeadline = new Timestamp(System.currentTimeMillis() - 5000);
+        Timestamp beforeDeadline = new Timestamp(gapDeadline.getTime() - 1);
+        Timestamp afterDeadline = new Timestamp(gapDeadline.getTime() + 1);
+
+        assertEquals(2, OutboxBatchPublisher.countPublishable(
+                List.of(entry(11, afterDeadline), entry(12, afterDeadline), entry(14, afterDeadline)), 10, gapDeadline));
+        assertEquals(0, OutboxBatchPublisher.countPublishable(List.of(entry(12, afterDeadline)), 10, gapDeadline));
+        assertEquals(2, OutboxBatchPublisher.countPublishable(
+                List.of(entry(12, beforeDeadline), entry(13, afterDeadline)), 10, gapDeadline));
+    }
+
+    @Test
+    public void entryCommittedAfterItsIdWasSkipped_isRelayedLate() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Timestamp beforeGapTimeout = new Timestamp(System.currentTimeMillis() - 60_000);
+        transaction.executeWithoutResult(status -> outboxEntryRepository.append(List.of(entry("first", beforeGapTimeout))));
+        outboxRelay.relay();
+        long fromOffset = broker.endOffset(TEST_TOPIC);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread lateTransaction = Thread.ofPlatform().start(() -> transaction.executeWithoutResult(status -> {
+            outboxEntryRepository.append(List.of(entry("late", beforeGapTimeout)));
+            appended.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        try {
+            appended.await();
+            transaction.executeWithoutResult(status -> outboxEntryRepository.append(List.of(entry("next", beforeGapTimeout))));
+
+            assertEquals(1, outboxRelay.relay());
+        } finally {
+            commit.countDown();
+            lateTransaction.join();
+        }
+        assertEquals(1, outboxRelay.relay());
+        assertEquals(0, outboxRelay.relay());
+
+        List<OutboxMessage> messages = broker.read(TEST_TOPIC, fromOffset, 10);
+        assertEquals(List.of("next", "late"), messages.stream().map(OutboxMessage::key).toList());
+    }
+
+    private List<String> newStates(List<OutboxMessage> messages) throws Exception {
+        List<String> states = new ArrayList<>();
+        for (OutboxMessage message : messages) {
+            JsonNode payload = objectMapper.readTree(message.payload());
+            states.add(payload.get("newState").asText());
+        }
+        return states;
+    }
+
+    private static OutboxEntry entry(String key, Timestamp createdAt) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.setTopic(TEST_TOPIC);
+        entry.setMessageKey(key);
+        entry.setPayload("{}");
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+
+    private static OutboxEntry entry(long id, Timestamp createdAt) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.setId(id);
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+
+    private static OrderDto orderOf(String productId, int quantity) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity));
+    }
+
+    private String postOrder(String productId, int quantity) throws Exception {
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderOf(productId, quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String response = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -35,6 +35,7 @@ public class OrderPaymentTest {
     private static final String ORDERS_URL = "/orders";
     private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
     private static final String ORDERS_STATE_URL_TEMPLATE = "/orders/%s/state";
+    private static final String PRODUCT_URL_TEMPLATE = "/product/%s";
 
     @Autowired
     private MockMvc mockMvc;
@@ -109,6 +110,34 @@ public class OrderPaymentTest {
     }
 
 
+    @Test
+    public void paymentOfOrder_usesPricesFromTheTimeOfOrdering() throws Exception {
+        OrderDto order1 = new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(2))
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(1));
+
+        String createdOrderId1 = postOrder(order1);
+
+        ProductDto repricedProduct = new ProductDto()
+                .name("Test Product 1")
+                .price(new BigDecimal("20.00"))
+                .quantity(3);
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId1))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(repricedProduct)))
+                .andExpect(status().isNoContent());
+
+        PaymentDto paymentDto = new PaymentDto().amount(new BigDecimal("29.48"));
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, createdOrderId1))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(paymentDto)))
+                .andExpect(status().isNoContent());
+
+        Order actualOrder = orderRepository.findById(createdOrderId1).get();
+        assertEquals(Order.State.PAYED, actualOrder.getState());
+        assertEquals(0, new BigDecimal("29.48").compareTo(actualOrder.getTotalPrice()));
+    }
+
     @Test
     @Transactional
     public void paymentOfNotExistingOrder_returnsNotFound() throws Exception {
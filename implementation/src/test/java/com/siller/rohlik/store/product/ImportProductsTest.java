@@ -0,0 +1,191 @@
+package com.siller.rohlik.store.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.model.Product;
+import com.siller.rohlik.store.product.model.ProductUpsertErrorCode;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.ProductUpsertDto;
+import com.siller.rohlik.store.rest.model.product.ProductUpsertResultDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "productImport.chunkSize=2")
+@AutoConfigureMockMvc
+public class ImportProductsTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String IMPORT_URL = "/products:batch";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void importProducts_insertsAndUpdatesProductsAndReportsFailedRows() throws Exception {
+        String existingProductId = postProduct(new ProductDto().name("Old name").price(new BigDecimal("1.00")).quantity(1));
+
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-1").name("New product").price(new BigDecimal("2.50")).quantity(10)),
+                objectMapper.writeValueAsString(new ProductUpsertDto().id(existingProductId).name("New name").price(new BigDecimal("3.00")).quantity(7)),
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-2").price(new BigDecimal("2.50"))),
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-3").name("Too expensive").price(new BigDecimal("1e40")).quantity(1)),
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-4").name("Another product").quantity(3))
+        );
+
+        List<ProductUpsertResultDto> results = importProducts(body);
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertNull(results.get(0).getErrorCode());
+        assertNull(results.get(1).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.INVALID_PRODUCT.name(), results.get(2).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.UPSERT_FAILED.name(), results.get(3).getErrorCode());
+        assertNull(results.get(4).getErrorCode());
+
+        Product insertedProduct = productRepository.findById("sku-1").get();
+        assertEquals("New product", insertedProduct.getName());
+        assertEquals(10, insertedProduct.getQuantity());
+        assertEquals(0, new BigDecimal("2.50").compareTo(insertedProduct.getPrice()));
+
+        Product updatedProduct = productRepository.findById(existingProductId).get();
+        assertEquals("New name", updatedProduct.getName());
+        assertEquals(7, updatedProduct.getQuantity());
+        assertEquals(1L, updatedProduct.getVersion());
+
+        assertTrue(productRepository.findById("sku-2").isEmpty());
+        assertTrue(productRepository.findById("sku-3").isEmpty());
+        assertTrue(productRepository.findById("sku-4").get().isNotFinished());
+    }
+
+    @Test
+    public void orderAfterImport_usesImportedPrice() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(new BigDecimal("1.00")).quantity(5));
+        postOrder(productId);
+
+        importProducts(objectMapper.writeValueAsString(
+                new ProductUpsertDto().id(productId).name("Test Product").price(new BigDecimal("4.00")).quantity(5)));
+        String orderId = postOrder(productId);
+
+        assertEquals(0, new BigDecimal("4.00").compareTo(orderRepository.findById(orderId).get().getTotalPrice()));
+    }
+
+    @Test
+    public void importProducts_withMalformedRows_reportsThemAndContinues() throws Exception {
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-1").name("New product").price(BigDecimal.ONE).quantity(1)),
+                "{\"id\": \"sku-2\", \"quantity\": \"many\"}",
+                "{\"id\": \"sku-3\", \"name\": ",
+                objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-4").name("Another product").price(BigDecimal.ONE).quantity(1))
+        );
+
+        List<ProductUpsertResultDto> results = importProducts(body);
+
+        assertEquals(4, results.size());
+        assertNull(results.get(0).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.MALFORMED_PRODUCT.name(), results.get(1).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.MALFORMED_PRODUCT.name(), results.get(2).getErrorCode());
+        assertNull(results.get(3).getErrorCode());
+        assertEquals(3, results.get(3).getIndex());
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    public void importProducts_fromJsonArray_skipsMismatchedRowsAndStopsAtInvalidJson() throws Exception {
+        String body = "[" + objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-1").name("New product").price(BigDecimal.ONE).quantity(1))
+                + ", {\"id\": \"sku-2\", \"quantity\": \"many\"}, "
+                + objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-3").name("Another product").price(BigDecimal.ONE).quantity(1))
+                + ", {\"id\": \"sku-4\" \"name\": \"Lost product\"}, "
+                + objectMapper.writeValueAsString(new ProductUpsertDto().id("sku-5").name("Unread product").price(BigDecimal.ONE).quantity(1))
+                + "]";
+
+        List<ProductUpsertResultDto> results = importProducts(body, APPLICATION_JSON.toString());
+
+        assertEquals(4, results.size());
+        assertNull(results.get(0).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.MALFORMED_PRODUCT.name(), results.get(1).getErrorCode());
+        assertNull(results.get(2).getErrorCode());
+        assertEquals(ProductUpsertErrorCode.MALFORMED_PRODUCT.name(), results.get(3).getErrorCode());
+        assertTrue(productRepository.findById("sku-3").isPresent());
+        assertTrue(productRepository.findById("sku-5").isEmpty());
+    }
+
+    private List<ProductUpsertResultDto> importProducts(String body) throws Exception {
+        return importProducts(body, APPLICATION_NDJSON.toString());
+    }
+
+    private List<ProductUpsertResultDto> importProducts(String body, String contentType) throws Exception {
+        String response = mockMvc.perform(post(IMPORT_URL)
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<ProductUpsertResultDto> results = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            results.add(objectMapper.readValue(line, ProductUpsertResultDto.class));
+        }
+        return results;
+    }
+
+    private String postOrder(String productId) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderDto()
+                                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,153 @@
+package com.siller.rohlik.store.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.ProductListItemDto;
+import com.siller.rohlik.store.rest.model.product.ProductPageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ListProductsTest {
+
+    private static final String PRODUCTS_URL = "/products";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void listProducts_walksAllPagesInIdOrder() throws Exception {
+        List<String> productIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            productIds.add(postProduct(new ProductDto().name("Product " + i).price(BigDecimal.ONE).quantity(i)));
+        }
+        productIds.sort(null);
+
+        List<String> listedIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get(PRODUCTS_URL).param("limit", "2");
+            if (cursor != null) {
+                request.param("after", cursor);
+            }
+            ProductPageDto page = getPage(request);
+            page.getItems().forEach(item -> listedIds.add(item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(productIds, listedIds);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void listProducts_withFullLastPage_hasNoNextCursor() throws Exception {
+        postProduct(new ProductDto().name("Product 1").price(BigDecimal.ONE).quantity(1));
+        postProduct(new ProductDto().name("Product 2").price(BigDecimal.ONE).quantity(1));
+
+        ProductPageDto page = getPage(get(PRODUCTS_URL).param("limit", "2"));
+
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void listProducts_appliesFilters() throws Exception {
+        String cheapInStock = postProduct(new ProductDto().name("Apple juice").price(new BigDecimal("1.50")).quantity(3));
+        String cheapSoldOut = postProduct(new ProductDto().name("Apple pie").price(new BigDecimal("2.00")).quantity(0));
+        String expensive = postProduct(new ProductDto().name("Apple tree").price(new BigDecimal("40.00")).quantity(1));
+        String discounted = postProduct(new ProductDto().name("100% apple").price(new BigDecimal("1.00")).quantity(1));
+        postProduct(new ProductDto().name("Banana").price(new BigDecimal("1.00")).quantity(9));
+
+        assertEquals(sorted(cheapInStock, cheapSoldOut),
+                listedIds(get(PRODUCTS_URL).param("namePrefix", "Apple").param("maxPrice", "10")));
+        assertEquals(sorted(cheapInStock, expensive),
+                listedIds(get(PRODUCTS_URL).param("namePrefix", "Apple").param("inStock", "true")));
+        assertEquals(sorted(cheapSoldOut),
+                listedIds(get(PRODUCTS_URL).param("inStock", "false")));
+        assertEquals(sorted(cheapSoldOut, expensive),
+                listedIds(get(PRODUCTS_URL).param("minPrice", "2")));
+        assertEquals(sorted(discounted),
+                listedIds(get(PRODUCTS_URL).param("namePrefix", "100%")));
+        assertEquals(List.of(),
+                listedIds(get(PRODUCTS_URL).param("namePrefix", "App_e")));
+    }
+
+    @Test
+    public void listProducts_returnsProductFields() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(new BigDecimal("13.12")).quantity(5));
+
+        ProductListItemDto item = getPage(get(PRODUCTS_URL)).getItems().getFirst();
+
+        assertEquals(productId, item.getId());
+        assertEquals("Test Product", item.getName());
+        assertEquals(0, new BigDecimal("13.12").compareTo(item.getPrice()));
+        assertEquals(5, item.getQuantity());
+    }
+
+    private static List<String> sorted(String... productIds) {
+        return Arrays.stream(productIds).sorted().toList();
+    }
+
+    private List<String> listedIds(MockHttpServletRequestBuilder request) throws Exception {
+        return getPage(request).getItems().stream().map(ProductListItemDto::getId).toList();
+    }
+
+    private ProductPageDto getPage(MockHttpServletRequestBuilder request) throws Exception {
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, ProductPageDto.class);
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,143 @@
+package com.siller.rohlik.store.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderErrorResponseDto;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProductCatalogTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String PRODUCT_URL_TEMPLATE = "/product/%s";
+    private static final String ORDERS_URL = "/orders";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void orderAfterProductUpdate_usesUpdatedPrice() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(new BigDecimal("10.00")).quantity(5));
+        postOrder(productId);
+
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(new BigDecimal("12.50")).quantity(5))))
+                .andExpect(status().isNoContent());
+        String orderId = postOrder(productId);
+
+        BigDecimal totalPrice = orderRepository.findById(orderId).get().getTotalPrice();
+        assertEquals(0, new BigDecimal("12.50").compareTo(totalPrice));
+    }
+
+    @Test
+    public void orderAfterProductDelete_returnsInvalidProduct() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(new BigDecimal("10.00")).quantity(5));
+        String orderId = postOrder(productId);
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteById(orderId);
+
+        mockMvc.perform(delete(String.format(PRODUCT_URL_TEMPLATE, productId)))
+                .andExpect(status().isNoContent());
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderOf(productId))))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+
+        CreateNewOrderErrorResponseDto errorResponse = objectMapper.readValue(response, CreateNewOrderErrorResponseDto.class);
+        assertEquals(1, errorResponse.getErrors().size());
+        assertEquals(CreateNewOrderError.Code.INVALID_PRODUCT.name(), errorResponse.getErrors().get(0).getErrorCode());
+    }
+
+    @Test
+    public void repeatedOrdersOfProduct_areServedFromCatalogCache() throws Exception {
+        String productId = postProduct(new ProductDto().name("Test Product").price(new BigDecimal("10.00")).quantity(5));
+        double hitsBefore = cacheGets("hit");
+
+        postOrder(productId);
+        postOrder(productId);
+
+        assertTrue(cacheGets("hit") > hitsBefore);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.find("cache.gets")
+                .tag("cache", ProductCatalog.CACHE_NAME)
+                .tag("result", result)
+                .functionCounters().stream()
+                .mapToDouble(FunctionCounter::count)
+                .sum();
+    }
+
+    private static OrderDto orderOf(String productId) {
+        return new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(1));
+    }
+
+    private String postOrder(String productId) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderOf(productId))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(ProductDto product) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(product)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,260 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.OrderService;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.HeldStockRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.repository.StockHoldRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.ProductListItemDto;
+import com.siller.rohlik.store.rest.model.product.ProductPageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "stockReservations.mode=holds")
+@AutoConfigureMockMvc
+public class StockHoldsTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String PRODUCT_URL_TEMPLATE = "/product/%s";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDERS_STATE_URL_TEMPLATE = "/orders/%s/state";
+    private static final String ORDERS_PAYMENT_URL_TEMPLATE = "/orders/%s/payment";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private HeldStockRepository heldStockRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        stockHoldRepository.deleteAll();
+        heldStockRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void reservations_holdProductsWithoutChangingTheirQuantity() throws Exception {
+        String productId = postProduct(5);
+
+        postOrder(productId, 3);
+        List<CreateNewOrderErrorDto> errors = postRejectedOrder(new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(3)));
+
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errors.getFirst().getErrorCode());
+        assertEquals(5, storedQuantity(productId));
+        assertEquals(3, heldStockRepository.findById(productId).get().getQuantity());
+        assertEquals(2, availableQuantity(productId));
+    }
+
+    @Test
+    public void payment_settlesHeldProducts() throws Exception {
+        String productId = postProduct(5);
+        String orderId = postOrder(productId, 3);
+
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("3")))))
+                .andExpect(status().isNoContent());
+
+        assertEquals(2, storedQuantity(productId));
+        assertEquals(0, heldStockRepository.findById(productId).get().getQuantity());
+        assertEquals(0, stockHoldRepository.count());
+        assertEquals(2, availableQuantity(productId));
+    }
+
+    @Test
+    public void payment_afterQuantityWasSetBelowHeldQuantity_settlesDownToZero() throws Exception {
+        String productId = postProduct(5);
+        String orderId = postOrder(productId, 3);
+        setQuantity(productId, 1);
+
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("3")))))
+                .andExpect(status().isNoContent());
+
+        assertEquals(0, storedQuantity(productId));
+        assertEquals(0, heldStockRepository.findById(productId).get().getQuantity());
+        assertEquals(0, availableQuantity(productId));
+    }
+
+    @Test
+    public void listProducts_listsQuantitiesWithoutHeldProducts() throws Exception {
+        String partlyHeldProductId = postProduct(5);
+        String heldProductId = postProduct(2);
+        String overheldProductId = postProduct(3);
+        postOrder(partlyHeldProductId, 3);
+        postOrder(heldProductId, 2);
+        postOrder(overheldProductId, 2);
+        setQuantity(overheldProductId, 1);
+
+        List<ProductListItemDto> items = getPage(get(PRODUCTS_URL)).getItems();
+
+        assertEquals(
+                Map.of(partlyHeldProductId, 2, heldProductId, 0, overheldProductId, 0),
+                items.stream().collect(Collectors.toMap(ProductListItemDto::getId, ProductListItemDto::getQuantity))
+        );
+        assertEquals(List.of(partlyHeldProductId), listedIds(get(PRODUCTS_URL).param("inStock", "true")));
+        assertEquals(
+                Stream.of(heldProductId, overheldProductId).sorted().toList(),
+                listedIds(get(PRODUCTS_URL).param("inStock", "false"))
+        );
+    }
+
+    @Test
+    public void canceledOrders_returnHeldOrSettledProducts() throws Exception {
+        String productId = postProduct(5);
+        String heldOrderId = postOrder(productId, 1);
+        String paidOrderId = postOrder(productId, 2);
+        mockMvc.perform(put(String.format(ORDERS_PAYMENT_URL_TEMPLATE, paidOrderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PaymentDto().amount(new BigDecimal("2")))))
+                .andExpect(status().isNoContent());
+
+        cancelOrder(heldOrderId);
+        cancelOrder(paidOrderId);
+
+        assertEquals(5, storedQuantity(productId));
+        assertEquals(0, heldStockRepository.findById(productId).get().getQuantity());
+        assertEquals(5, availableQuantity(productId));
+    }
+
+    @Test
+    public void expiredOrders_deleteTheirHolds() throws Exception {
+        String productId1 = postProduct(5);
+        String productId2 = postProduct(5);
+        String orderId = postOrder(productId1, 2);
+        String otherOrderId = postOrder(productId2, 4);
+
+        orderService.invalidateActiveOrders(List.of(orderId));
+
+        assertEquals(5, availableQuantity(productId1));
+        assertEquals(1, availableQuantity(productId2));
+        assertEquals(1, stockHoldRepository.count());
+        assertEquals(Order.State.ACTIVE, orderRepository.findById(otherOrderId).get().getState());
+    }
+
+    @Test
+    public void setProduct_keepsHoldsOfActiveOrders() throws Exception {
+        String productId = postProduct(5);
+        postOrder(productId, 2);
+
+        setQuantity(productId, 10);
+
+        assertEquals(8, availableQuantity(productId));
+        postOrder(productId, 8);
+        assertEquals(0, availableQuantity(productId));
+    }
+
+    private int storedQuantity(String productId) {
+        return productRepository.findById(productId).get().getQuantity();
+    }
+
+    private int availableQuantity(String productId) {
+        return stockReservations.findAvailableQuantities(List.of(productId)).get(productId);
+    }
+
+    private void setQuantity(String productId, int quantity) throws Exception {
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isNoContent());
+    }
+
+    private List<String> listedIds(MockHttpServletRequestBuilder request) throws Exception {
+        return getPage(request).getItems().stream().map(ProductListItemDto::getId).toList();
+    }
+
+    private ProductPageDto getPage(MockHttpServletRequestBuilder request) throws Exception {
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, ProductPageDto.class);
+    }
+
+    private void cancelOrder(String orderId) throws Exception {
+        mockMvc.perform(put(String.format(ORDERS_STATE_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new WriteableOrderStateDto().state(Order.State.CANCELED.name()))))
+                .andExpect(status().isNoContent());
+    }
+
+    private String postOrder(String productId, int quantity) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderDto()
+                                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private List<CreateNewOrderErrorDto> postRejectedOrder(OrderDto orderDto) throws Exception {
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewOrderErrorResponseDto.class).getErrors();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
@@ -0,0 +1,244 @@
+package com.siller.rohlik.store.product.stock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.model.CreateNewOrderError;
+import com.siller.rohlik.store.order.model.Order;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.product.repository.StockLedgerRepository;
+import com.siller.rohlik.store.rest.model.order.*;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"stockReservations.mode=ledger", "stockLedger.writeBehindMillis=3600000"})
+@AutoConfigureMockMvc
+public class StockLedgerTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String PRODUCT_URL_TEMPLATE = "/product/%s";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDERS_STATE_URL_TEMPLATE = "/orders/%s/state";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockLedgerRepository stockLedgerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanDb() {
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        stockLedgerRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void reservations_areGrantedByLedgerAndWrittenBehind() throws Exception {
+        String productId = postProduct(5);
+
+        postOrder(productId, 3);
+        assertEquals(5, storedQuantity(productId));
+        assertEquals(1, stockLedgerRepository.count());
+
+        List<CreateNewOrderErrorDto> errors = postRejectedOrder(new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(3)));
+        assertEquals(CreateNewOrderError.Code.NOT_ENOUGH_PRODUCTS_ON_STOCK.name(), errors.getFirst().getErrorCode());
+
+        stockLedger.writeBehind();
+        assertEquals(2, storedQuantity(productId));
+        assertEquals(0, stockLedgerRepository.count());
+    }
+
+    @Test
+    public void rejectedOrder_keepsReservedLinesAvailable() throws Exception {
+        String productId1 = postProduct(5);
+        String productId2 = postProduct(1);
+
+        postRejectedOrder(new OrderDto()
+                .addOrderItemsItem(new OrderItemDto().productId(productId1).quantity(3))
+                .addOrderItemsItem(new OrderItemDto().productId(productId2).quantity(2)));
+        postOrder(productId1, 5);
+
+        stockLedger.writeBehind();
+        assertEquals(0, storedQuantity(productId1));
+        assertEquals(1, storedQuantity(productId2));
+    }
+
+    @Test
+    public void canceledOrder_returnsProductsToLedger() throws Exception {
+        String productId = postProduct(5);
+        String orderId = postOrder(productId, 3);
+
+        mockMvc.perform(put(String.format(ORDERS_STATE_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new WriteableOrderStateDto().state(Order.State.CANCELED.name()))))
+                .andExpect(status().isNoContent());
+        postOrder(productId, 5);
+
+        stockLedger.writeBehind();
+        assertEquals(0, storedQuantity(productId));
+    }
+
+    @Test
+    public void setProduct_overwritesQuantityOfLedger() throws Exception {
+        String productId = postProduct(5);
+        postOrder(productId, 2);
+
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(10))))
+                .andExpect(status().isNoContent());
+        postOrder(productId, 10);
+
+        stockLedger.writeBehind();
+        assertEquals(0, storedQuantity(productId));
+    }
+
+    @Test
+    public void setProduct_whileReservationIsRolledBack_keepsSetQuantity() throws Exception {
+        String productId = postProduct(10);
+
+        reserveWhile(productId, 5, false, () -> setQuantity(productId, 100));
+
+        assertEquals(100, availableQuantity(productId));
+        stockLedger.writeBehind();
+        assertEquals(100, storedQuantity(productId));
+    }
+
+    @Test
+    public void setProduct_whileReservationIsCommitted_takesReservationFromSetQuantity() throws Exception {
+        String productId = postProduct(10);
+
+        reserveWhile(productId, 5, true, () -> setQuantity(productId, 100));
+
+        assertEquals(95, availableQuantity(productId));
+        stockLedger.writeBehind();
+        assertEquals(95, storedQuantity(productId));
+    }
+
+    @Test
+    public void entriesLeftByCrashedNode_areCountedAndReplayed() throws Exception {
+        String productId = postProduct(5);
+        stockLedgerRepository.append(List.of(productId), List.of(-4));
+
+        postRejectedOrder(new OrderDto().addOrderItemsItem(new OrderItemDto().productId(productId).quantity(2)));
+        postOrder(productId, 1);
+
+        stockLedger.writeBehind();
+        assertEquals(0, storedQuantity(productId));
+    }
+
+    // Reserves in a transaction of its own, which stays open until the action is done and then commits or rolls back.
+    private void reserveWhile(String productId, int quantity, boolean commit, ThrowingRunnable action) throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch complete = new CountDownLatch(1);
+        Thread reservation = Thread.ofPlatform().start(() -> transaction.executeWithoutResult(status -> {
+            assertEquals(true, stockLedger.reserve("order", List.of(productId), List.of(quantity))[0]);
+            reserved.countDown();
+            try {
+                complete.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (!commit) {
+                status.setRollbackOnly();
+            }
+        }));
+        try {
+            reserved.await();
+            action.run();
+        } finally {
+            complete.countDown();
+            reservation.join();
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private void setQuantity(String productId, int quantity) throws Exception {
+        mockMvc.perform(put(String.format(PRODUCT_URL_TEMPLATE, productId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isNoContent());
+    }
+
+    private int availableQuantity(String productId) {
+        return stockLedger.findAvailableQuantities(List.of(productId)).get(productId);
+    }
+
+    private int storedQuantity(String productId) {
+        return productRepository.findById(productId).get().getQuantity();
+    }
+
+    private String postOrder(String productId, int quantity) throws Exception {
+        String responseFromSavingOrder = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderDto()
+                                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingOrder, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private List<CreateNewOrderErrorDto> postRejectedOrder(OrderDto orderDto) throws Exception {
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderDto)))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewOrderErrorResponseDto.class).getErrors();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String responseFromSavingProduct = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(responseFromSavingProduct, CreateNewProductResponseDto.class).getId();
+    }
+}
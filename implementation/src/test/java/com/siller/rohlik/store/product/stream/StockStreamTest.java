@@ -0,0 +1,236 @@
+package com.siller.rohlik.store.product.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siller.rohlik.store.order.repository.ActiveOrderMetadataRepository;
+import com.siller.rohlik.store.order.repository.OrderRepository;
+import com.siller.rohlik.store.product.repository.ProductRepository;
+import com.siller.rohlik.store.rest.model.order.CreateNewOrderResponseDto;
+import com.siller.rohlik.store.rest.model.order.OrderDto;
+import com.siller.rohlik.store.rest.model.order.OrderItemDto;
+import com.siller.rohlik.store.rest.model.order.WriteableOrderStateDto;
+import com.siller.rohlik.store.rest.model.product.CreateNewProductResponseDto;
+import com.siller.rohlik.store.rest.model.product.ProductDto;
+import com.siller.rohlik.store.rest.model.product.StockLevelChangeDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static java.lang.Thread.sleep;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"stockStream.windowMillis=50", "stockStream.heartbeatMillis=100", "stockStream.maxSubscribers=3"}
+)
+@AutoConfigureMockMvc
+public class StockStreamTest {
+
+    private static final String PRODUCTS_URL = "/products";
+    private static final String ORDERS_URL = "/orders";
+    private static final String ORDER_STATE_URL_TEMPLATE = "/orders/%s/state";
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final String TEST_EVENT = "test";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ActiveOrderMetadataRepository activeOrderMetadataRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SseBroadcaster sseBroadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<Stream<String>> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void cleanDb() throws Exception {
+        subscriptions.forEach(Stream::close);
+        subscriptions.clear();
+        await(() -> !sseBroadcaster.hasSubscribers());
+        activeOrderMetadataRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void stream_sendsQuantityAndDeltaOfChangedProducts() throws Exception {
+        List<String> stream = subscribe();
+        String productId = postProduct(5);
+        awaitQuantity(stream, productId, 5);
+
+        String orderId = postOrder(productId, 2);
+        awaitQuantity(stream, productId, 3);
+        mockMvc.perform(put(String.format(ORDER_STATE_URL_TEMPLATE, orderId))
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new WriteableOrderStateDto().state("CANCELED"))))
+                .andExpect(status().isNoContent());
+        List<StockLevelChangeDto> changes = awaitQuantity(stream, productId, 5);
+
+        assertEquals(
+                Arrays.asList(null, -2, 2),
+                changes.stream().map(StockLevelChangeDto::getDelta).toList()
+        );
+    }
+
+    @Test
+    public void subscribersOverLimit_areRejected() throws Exception {
+        int status;
+        int attempts = 0;
+        do {
+            HttpResponse<Stream<String>> subscription = httpClient.send(streamRequest(), HttpResponse.BodyHandlers.ofLines());
+            subscriptions.add(subscription.body());
+            status = subscription.statusCode();
+            attempts++;
+        } while (status == 200 && attempts <= 3);
+
+        assertEquals(503, status);
+    }
+
+    @Test
+    public void subscriberNotReading_isDroppedWhileOthersKeepReceiving() throws Exception {
+        List<String> stream = subscribe();
+        double dropped = meterRegistry.counter(SseBroadcaster.DROPPED_METRIC).count();
+        try (Socket notReading = new Socket()) {
+            notReading.setReceiveBufferSize(1024);
+            notReading.connect(new InetSocketAddress("localhost", port));
+            notReading.getOutputStream().write(("GET " + StockStreamController.STREAM_URL + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\nAccept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            await(() -> meterRegistry.get(SseBroadcaster.SUBSCRIBERS_METRIC).gauge().value() == 2);
+
+            String data = "x".repeat(64 * 1024);
+            int sent = 0;
+            while (meterRegistry.counter(SseBroadcaster.DROPPED_METRIC).count() == dropped && sent < 1000) {
+                sseBroadcaster.broadcast(SseBroadcaster.event(TEST_EVENT, data));
+                int expected = ++sent;
+                await(() -> testEventsOf(stream) == expected);
+            }
+            sseBroadcaster.broadcast(SseBroadcaster.event(TEST_EVENT, "last"));
+            await(() -> stream.contains("data:last"));
+        }
+
+        assertEquals(dropped + 1, meterRegistry.counter(SseBroadcaster.DROPPED_METRIC).count());
+        assertEquals(1, meterRegistry.get(SseBroadcaster.SUBSCRIBERS_METRIC).gauge().value());
+        assertTrue(stream.contains("data:last"));
+    }
+
+    private List<String> subscribe() throws Exception {
+        HttpResponse<Stream<String>> subscription = httpClient.send(streamRequest(), HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, subscription.statusCode());
+        subscriptions.add(subscription.body());
+        List<String> lines = new CopyOnWriteArrayList<>();
+        Thread.ofPlatform().daemon().start(() -> {
+            try {
+                subscription.body().forEach(lines::add);
+            } catch (UncheckedIOException e) {
+                // closed by the test
+            }
+        });
+        return lines;
+    }
+
+    private HttpRequest streamRequest() {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + StockStreamController.STREAM_URL))
+                .header("Accept", "text/event-stream")
+                .build();
+    }
+
+    private static long testEventsOf(List<String> stream) {
+        return stream.stream().filter(line -> line.equals("event:" + TEST_EVENT)).count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private List<StockLevelChangeDto> awaitQuantity(List<String> stream, String productId, int quantity) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        List<StockLevelChangeDto> changes;
+        do {
+            sleep(20);
+            changes = changesOf(stream, productId);
+        } while ((changes.isEmpty() || !Integer.valueOf(quantity).equals(changes.getLast().getQuantity()))
+                && System.currentTimeMillis() < deadline);
+        assertEquals(quantity, changes.getLast().getQuantity());
+        return changes;
+    }
+
+    private List<StockLevelChangeDto> changesOf(List<String> stream, String productId) throws Exception {
+        List<StockLevelChangeDto> changes = new ArrayList<>();
+        for (String line : stream) {
+            if (line.startsWith("data:")) {
+                for (StockLevelChangeDto change : objectMapper.readValue(line.substring("data:".length()), StockLevelChangeDto[].class)) {
+                    if (change.getProductId().equals(productId)) {
+                        changes.add(change);
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    private String postOrder(String productId, int quantity) throws Exception {
+        String response = mockMvc.perform(post(ORDERS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderDto()
+                                .addOrderItemsItem(new OrderItemDto().productId(productId).quantity(quantity)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewOrderResponseDto.class).getId();
+    }
+
+    private String postProduct(int quantity) throws Exception {
+        String response = mockMvc.perform(post(PRODUCTS_URL)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ProductDto().name("Test Product").price(BigDecimal.ONE).quantity(quantity))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CreateNewProductResponseDto.class).getId();
+    }
+}